@@ -18,6 +18,8 @@
 
 package grakn.verification.tools.integrity;
 
+import java.util.List;
+
 public class IntegrityException extends RuntimeException {
 
     private IntegrityException(String message){
@@ -71,4 +73,61 @@ public class IntegrityException extends RuntimeException {
     public static IntegrityException typeHasMultipleParentTypesInSub(Type type, Type parent1, Type parent2) {
         return new IntegrityException(String.format("Type %s has two parent types in direct sub: %s and %s", type, parent1, parent2));
     }
+
+    public static IntegrityException roleDoesNotHaveMetaRoleSuperType(Type role) {
+        return new IntegrityException(String.format("Role %s does not have the meta role as a super role", role));
+    }
+
+    public static IntegrityException inheritedRoleNotPlayed(Type type, Type role, Type parent) {
+        return new IntegrityException(String.format("Type %s does not play role %s inherited from its parent %s", type, role, parent));
+    }
+
+    public static IntegrityException inheritedRoleNotRelated(Type relation, Type role, Type parent) {
+        return new IntegrityException(String.format("Relation type %s does not relate role %s inherited from its parent %s", relation, role, parent));
+    }
+
+    public static IntegrityException overriddenRoleStillRelated(Type relation, Type overriddenRole) {
+        return new IntegrityException(String.format("Relation type %s still relates role %s, which it overrides", relation, overriddenRole));
+    }
+
+    public static IntegrityException roleOverridesUnrelatedRole(Type relation, Type role, Type overriddenRole) {
+        return new IntegrityException(String.format("Relation type %s relates %s as %s, but %s is not related by its parent", relation, role, overriddenRole, overriddenRole));
+    }
+
+    public static IntegrityException instanceOwnsAttributeNotInHas(String instanceId, Type owner, Type attribute) {
+        return new IntegrityException(String.format("Instance %s of type %s owns an attribute of type %s, which %s may not own", instanceId, owner, attribute, owner));
+    }
+
+    public static IntegrityException rolePlayerNotAllowed(String relationId, Type relation, String playerId, Type player) {
+        return new IntegrityException(String.format("Relation %s of type %s has role player %s of type %s in no role both related by %s and played by %s",
+                relationId, relation, playerId, player, relation, player));
+    }
+
+    public static IntegrityException ownerMissingKey(String owner, String ownerType, String keyType) {
+        return new IntegrityException(String.format("Instance %s of type %s has no value for key %s", owner, ownerType, keyType));
+    }
+
+    public static IntegrityException ownerHasMultipleKeys(String owner, String ownerType, String keyType, long values) {
+        return new IntegrityException(String.format("Instance %s of type %s has %d values for key %s, expected exactly one", owner, ownerType, values, keyType));
+    }
+
+    public static IntegrityException keyValueNotUnique(String keyType, String value, long owners) {
+        return new IntegrityException(String.format("Key %s with value %s is owned by %d instances, expected exactly one", keyType, value, owners));
+    }
+
+    public static IntegrityException attributeValueHasWrongType(String attribute, Type type, Object value, String valueType) {
+        return new IntegrityException(String.format("Attribute %s of type %s has value %s, which is not of the value type %s", attribute, type, value, valueType));
+    }
+
+    public static IntegrityException attributeValueDoesNotMatchRegex(String attribute, Type type, Object value, String regex) {
+        return new IntegrityException(String.format("Attribute %s of type %s has value %s, which does not match the regex %s", attribute, type, value, regex));
+    }
+
+    public static IntegrityException attributeTypeHasNoValueType(Type type) {
+        return new IntegrityException(String.format("Attribute type %s does not have a value type", type));
+    }
+
+    public static IntegrityException ruleCycleThroughNegation(List<String> rules) {
+        return new IntegrityException(String.format("Rules %s are mutually recursive through a negation, so they cannot be stratified", rules));
+    }
 }
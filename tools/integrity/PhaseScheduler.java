@@ -0,0 +1,257 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs validation phases over their dependency DAG, starting each phase as soon as all of its dependencies
+ * have finished, so that independent phases run concurrently.
+ *
+ * Every violation is collected rather than thrown. A phase whose set could not be built at all fails, and the
+ * phases depending on it are skipped; a phase whose set was built but is invalid still lets its dependents run.
+ *
+ * Under a time budget, ready phases are started in ValidationPhase.PRIORITY order so the cheap checks that unblock
+ * the most others finish first. When the budget runs out, running phases are interrupted, the cancellation hook is
+ * run to release what they hold, and they and every phase not yet started are reported INCOMPLETE.
+ */
+class PhaseScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PhaseScheduler.class);
+
+    static final long UNBOUNDED = Long.MAX_VALUE;
+
+    interface PhaseBody {
+        /**
+         * @return the set built by the phase, or null if the phase only checks sets built by other phases
+         */
+        Object run(ValidationPhase phase, Map<ValidationPhase, Object> results, Consumer<IntegrityException> violations);
+    }
+
+    private final ExecutorService executor;
+    private final int violationCap;
+    private final int parallelism;
+    private final long budgetMillis;
+
+    PhaseScheduler(ExecutorService executor, int violationCap) {
+        this(executor, violationCap, Integer.MAX_VALUE, UNBOUNDED);
+    }
+
+    /**
+     * @param parallelism maximum number of phases running at once
+     * @param budgetMillis time after which no more phases are started and running phases are interrupted
+     */
+    PhaseScheduler(ExecutorService executor, int violationCap, int parallelism, long budgetMillis) {
+        if (violationCap < 1) {
+            throw new IllegalArgumentException("Violation cap must be at least 1");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.executor = executor;
+        this.violationCap = violationCap;
+        this.parallelism = parallelism;
+        this.budgetMillis = budgetMillis;
+    }
+
+    ValidationReport run(String keyspace, PhaseBody body) {
+        return run(keyspace, body, () -> {});
+    }
+
+    /**
+     * @param onCancel run after interrupting the phases still running when the budget runs out, eg. to close their
+     *                 transactions so they stop even where they do not respond to interrupts
+     */
+    ValidationReport run(String keyspace, PhaseBody body, Runnable onCancel) {
+        long start = System.currentTimeMillis();
+        long deadline = budgetMillis == UNBOUNDED ? UNBOUNDED : start + budgetMillis;
+        Map<ValidationPhase, Object> results = new ConcurrentHashMap<>();
+        Map<ValidationPhase, ValidationReport.PhaseStatus> statuses = new ConcurrentHashMap<>();
+        List<IntegrityException> violations = new ArrayList<>();
+        AtomicBoolean capReached = new AtomicBoolean(false);
+        AtomicReference<Exception> error = new AtomicReference<>();
+
+        Consumer<IntegrityException> collector = violation -> {
+            synchronized (violations) {
+                if (violations.size() < violationCap) {
+                    violations.add(violation);
+                }
+                if (violations.size() >= violationCap) {
+                    capReached.set(true);
+                }
+            }
+        };
+
+        // phase -> whether it produced its result, only written by this thread
+        Map<ValidationPhase, Boolean> finished = new EnumMap<>(ValidationPhase.class);
+        Set<ValidationPhase> waiting = EnumSet.allOf(ValidationPhase.class);
+        PriorityQueue<ValidationPhase> ready = new PriorityQueue<>(ValidationPhase.PRIORITY);
+        Map<ValidationPhase, Future<ValidationPhase>> running = new EnumMap<>(ValidationPhase.class);
+        Map<ValidationPhase, Boolean> produced = new ConcurrentHashMap<>();
+        CompletionService<ValidationPhase> completions = new ExecutorCompletionService<>(executor);
+        boolean outOfTime = false;
+
+        while (true) {
+            release(waiting, ready, finished, statuses, capReached);
+            while (running.size() < parallelism && !ready.isEmpty() && System.currentTimeMillis() < deadline) {
+                ValidationPhase phase = ready.poll();
+                if (capReached.get()) {
+                    statuses.put(phase, ValidationReport.PhaseStatus.SKIPPED);
+                    finished.put(phase, false);
+                    continue;
+                }
+                running.put(phase, completions.submit(() -> {
+                    produced.put(phase, runPhase(phase, body, results, statuses, collector, error));
+                    return phase;
+                }));
+            }
+            if (running.isEmpty()) {
+                if (ready.isEmpty() && waiting.isEmpty()) break;
+                if (System.currentTimeMillis() >= deadline) {
+                    outOfTime = true;
+                    break;
+                }
+                // phases were skipped rather than started, release their dependents
+                continue;
+            }
+
+            Future<ValidationPhase> done;
+            try {
+                long remaining = deadline - System.currentTimeMillis();
+                done = deadline == UNBOUNDED ? completions.take() : completions.poll(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done = null;
+            }
+            if (done == null) {
+                outOfTime = true;
+                break;
+            }
+            ValidationPhase phase = join(done);
+            running.remove(phase);
+            finished.put(phase, produced.get(phase));
+        }
+
+        // snapshot before interrupting, so interrupted phases cannot report their own failure
+        Map<ValidationPhase, ValidationReport.PhaseStatus> phaseStatuses = new EnumMap<>(ValidationPhase.class);
+        phaseStatuses.putAll(statuses);
+        List<IntegrityException> collected;
+        synchronized (violations) {
+            collected = new ArrayList<>(violations);
+        }
+        Exception firstError = error.get();
+
+        if (outOfTime) {
+            LOG.warn("Validation of {} ran out of its {}ms budget with {} phases running", keyspace, budgetMillis, running.size());
+            running.forEach((phase, future) -> {
+                future.cancel(true);
+                phaseStatuses.put(phase, ValidationReport.PhaseStatus.INCOMPLETE);
+            });
+            ready.forEach(phase -> phaseStatuses.put(phase, ValidationReport.PhaseStatus.INCOMPLETE));
+            waiting.forEach(phase -> phaseStatuses.put(phase, ValidationReport.PhaseStatus.INCOMPLETE));
+            onCancel.run();
+        }
+        return ValidationReport.of(keyspace, phaseStatuses, collected, firstError, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Move every waiting phase whose dependencies have all finished to the ready queue, or skip it if one of them
+     * did not produce its result or the violation cap has been reached. Skipping is propagated to dependents.
+     */
+    private static void release(Set<ValidationPhase> waiting, PriorityQueue<ValidationPhase> ready,
+                                Map<ValidationPhase, Boolean> finished,
+                                Map<ValidationPhase, ValidationReport.PhaseStatus> statuses, AtomicBoolean capReached) {
+        // declaration order is topological, so one pass also propagates skips to transitive dependents
+        Iterator<ValidationPhase> phases = waiting.iterator();
+        while (phases.hasNext()) {
+            ValidationPhase phase = phases.next();
+            if (!finished.keySet().containsAll(phase.dependencies())) continue;
+            phases.remove();
+            if (capReached.get() || phase.dependencies().stream().anyMatch(dependency -> !finished.get(dependency))) {
+                statuses.put(phase, ValidationReport.PhaseStatus.SKIPPED);
+                finished.put(phase, false);
+            } else {
+                ready.add(phase);
+            }
+        }
+    }
+
+    private static ValidationPhase join(Future<ValidationPhase> done) {
+        try {
+            return done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            // runPhase catches everything a phase can throw, so this is a bug in the scheduler
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return true if the phase produced its result, so that its dependents can run
+     */
+    private boolean runPhase(ValidationPhase phase, PhaseBody body, Map<ValidationPhase, Object> results,
+                             Map<ValidationPhase, ValidationReport.PhaseStatus> statuses,
+                             Consumer<IntegrityException> collector, AtomicReference<Exception> error) {
+        AtomicInteger phaseViolations = new AtomicInteger(0);
+        Consumer<IntegrityException> phaseCollector = violation -> {
+            phaseViolations.incrementAndGet();
+            collector.accept(violation);
+        };
+
+        try {
+            Object result = body.run(phase, Collections.unmodifiableMap(results), phaseCollector);
+            if (result != null) results.put(phase, result);
+            statuses.put(phase, phaseViolations.get() == 0 ? ValidationReport.PhaseStatus.PASSED : ValidationReport.PhaseStatus.FAILED);
+            return true;
+        } catch (IntegrityException e) {
+            phaseCollector.accept(e);
+            statuses.put(phase, ValidationReport.PhaseStatus.FAILED);
+            return false;
+        } catch (RuntimeException e) {
+            LOG.error("Validation phase {} could not be completed", phase, e);
+            error.compareAndSet(null, e);
+            statuses.put(phase, ValidationReport.PhaseStatus.ERROR);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import grakn.client.GraknClient;
+import grakn.common.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Differences between the validated schemas of two keyspaces, eg. the blue and green sides of a migration
+ *
+ * Both schemas are built concurrently, one session per keyspace, then every semantic set is compared by sorting
+ * the facts of each side on a canonical key and merging the two sorted lists. Only differing facts are kept.
+ */
+public class SchemaDiff {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SchemaDiff.class);
+
+    private static final Map<String, Function<ValidatedSchema, Iterable<?>>> RELATIONS = relations();
+
+    public enum Side {
+        LEFT_ONLY,
+        RIGHT_ONLY
+    }
+
+    public static class Difference {
+        private final String relation;
+        private final String fact;
+        private final Side side;
+
+        Difference(String relation, String fact, Side side) {
+            this.relation = relation;
+            this.fact = fact;
+            this.side = side;
+        }
+
+        public String relation() { return relation; }
+        public String fact() { return fact; }
+        public Side side() { return side; }
+
+        @Override
+        public String toString() {
+            return (side == Side.LEFT_ONLY ? "- " : "+ ") + relation + " " + fact;
+        }
+    }
+
+    private final List<Difference> differences;
+
+    private SchemaDiff(List<Difference> differences) {
+        this.differences = differences;
+    }
+
+    public static SchemaDiff compute(GraknClient client, String leftKeyspace, String rightKeyspace) {
+        try (GraknClient.Session left = client.session(leftKeyspace);
+             GraknClient.Session right = client.session(rightKeyspace)) {
+            return compute(left, right);
+        }
+    }
+
+    public static SchemaDiff compute(GraknClient.Session left, GraknClient.Session right) {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ValidatedSchema> leftSchema = executor.submit(() -> new Validator(left).validateSchema());
+            Future<ValidatedSchema> rightSchema = executor.submit(() -> new Validator(right).validateSchema());
+            return of(leftSchema.get(), rightSchema.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building schemas to compare", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static SchemaDiff of(ValidatedSchema left, ValidatedSchema right) {
+        List<Difference> differences = new ArrayList<>();
+        RELATIONS.forEach((relation, facts) -> merge(relation, sortedKeys(facts.apply(left)), sortedKeys(facts.apply(right)), differences));
+        LOG.info("Schemas differ by {} facts", differences.size());
+        return new SchemaDiff(Collections.unmodifiableList(differences));
+    }
+
+    private static void merge(String relation, List<String> left, List<String> right, List<Difference> differences) {
+        int i = 0;
+        int j = 0;
+        while (i < left.size() || j < right.size()) {
+            int comparison = i == left.size() ? 1 : j == right.size() ? -1 : left.get(i).compareTo(right.get(j));
+            if (comparison == 0) {
+                i++;
+                j++;
+            } else if (comparison < 0) {
+                differences.add(new Difference(relation, left.get(i++), Side.LEFT_ONLY));
+            } else {
+                differences.add(new Difference(relation, right.get(j++), Side.RIGHT_ONLY));
+            }
+        }
+    }
+
+    private static List<String> sortedKeys(Iterable<?> facts) {
+        List<String> keys = new ArrayList<>();
+        for (Object fact : facts) {
+            keys.add(key(fact));
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    private static String key(Object fact) {
+        if (fact instanceof Pair) {
+            Pair<?, ?> pair = (Pair<?, ?>) fact;
+            return "(" + key(pair.first()) + ", " + key(pair.second()) + ")";
+        }
+        return fact.toString();
+    }
+
+    private static Map<String, Function<ValidatedSchema, Iterable<?>>> relations() {
+        Map<String, Function<ValidatedSchema, Iterable<?>>> relations = new LinkedHashMap<>();
+        relations.put("type", ValidatedSchema::types);
+        relations.put("role", ValidatedSchema::roles);
+        relations.put("role sub", ValidatedSchema::roleSub);
+        relations.put("sub", ValidatedSchema::sub);
+        relations.put("transitive sub", ValidatedSchema::transitiveSub);
+        relations.put("has", ValidatedSchema::has);
+        relations.put("key", ValidatedSchema::key);
+        relations.put("plays", ValidatedSchema::plays);
+        relations.put("relates", ValidatedSchema::relates);
+        relations.put("abstract", ValidatedSchema::abstractTypes);
+        return Collections.unmodifiableMap(relations);
+    }
+
+    public boolean isEmpty() {
+        return differences.isEmpty();
+    }
+
+    public List<Difference> differences() {
+        return differences;
+    }
+
+    @Override
+    public String toString() {
+        if (differences.isEmpty()) return "Schemas are equivalent";
+        StringBuilder builder = new StringBuilder();
+        for (Difference difference : differences) {
+            builder.append(difference).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
@@ -18,6 +18,8 @@
 
 package grakn.verification.tools.integrity;
 
+import java.util.function.Consumer;
+
 public interface SemanticSet<T> extends Iterable<T> {
     void add(T item);
     boolean contains(T item);
@@ -27,4 +29,16 @@ public interface SemanticSet<T> extends Iterable<T> {
      * Throw an exception, if the validation fails
      */
     void validate();
+
+    /**
+     * Report violations to the given consumer rather than throwing the first one
+     * Sets that can find more than one violation override this to report all of them
+     */
+    default void validate(Consumer<IntegrityException> violations) {
+        try {
+            validate();
+        } catch (IntegrityException e) {
+            violations.accept(e);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import grakn.verification.tools.integrity.schema.Has;
+import grakn.verification.tools.integrity.schema.Plays;
+import grakn.verification.tools.integrity.schema.Relates;
+import grakn.verification.tools.integrity.schema.RoleHierarchy;
+import grakn.verification.tools.integrity.schema.RoleSub;
+import grakn.verification.tools.integrity.schema.Sub;
+import grakn.verification.tools.integrity.schema.TransitiveSub;
+import grakn.verification.tools.integrity.schema.TypeClassification;
+
+import java.util.Map;
+
+/**
+ * The schema-level semantic sets built by a Validator run, for tools that check data against the schema
+ */
+public class ValidatedSchema {
+
+    private final Map<ValidationPhase, Object> results;
+
+    ValidatedSchema(Map<ValidationPhase, Object> results) {
+        this.results = results;
+    }
+
+    public RejectDuplicateSet<Type> types() { return get(ValidationPhase.TYPES); }
+    public RejectDuplicateSet<Type> roles() { return get(ValidationPhase.ROLES); }
+    public RoleSub roleSub() { return get(ValidationPhase.ROLE_SUB); }
+    public RoleHierarchy roleHierarchy() { return get(ValidationPhase.ROLE_HIERARCHY); }
+    public Sub sub() { return get(ValidationPhase.SUB); }
+    public TransitiveSub transitiveSub() { return get(ValidationPhase.TRANSITIVE_SUB); }
+    public TypeClassification classification() { return get(ValidationPhase.CLASSIFICATION); }
+    public Has has() { return get(ValidationPhase.HAS); }
+    public Has key() { return get(ValidationPhase.KEY); }
+    public Plays plays() { return get(ValidationPhase.PLAYS); }
+    public Relates relates() { return get(ValidationPhase.RELATES); }
+    public RejectDuplicateSet<Type> abstractTypes() { return get(ValidationPhase.ABSTRACT); }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(ValidationPhase phase) {
+        return (T) results.get(phase);
+    }
+}
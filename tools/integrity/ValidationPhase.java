@@ -0,0 +1,99 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The steps of a validation, each building and checking one semantic set or relation between sets
+ * Declaration order is a topological order of the dependencies, so running the phases in order is always valid
+ */
+public enum ValidationPhase {
+    TYPES(Cost.QUERY),
+    ROLES(Cost.QUERY),
+    ROLE_SUB(Cost.QUERY_PER_TYPE, ROLES),
+    ROLE_HIERARCHY(Cost.LOCAL, ROLES, ROLE_SUB),
+    SUB(Cost.QUERY_PER_TYPE_PAIR, TYPES),
+    TRANSITIVE_SUB(Cost.QUERY_PER_TYPE_PAIR, SUB),
+    CLASSIFICATION(Cost.LOCAL, TRANSITIVE_SUB, ROLES),
+    HAS(Cost.QUERY_PER_TYPE_PAIR, TYPES, CLASSIFICATION),
+    KEY(Cost.QUERY_PER_TYPE_PAIR, TYPES, CLASSIFICATION, HAS),
+    PLAYS(Cost.QUERY_PER_TYPE, TYPES, CLASSIFICATION),
+    RELATES(Cost.QUERY_PER_TYPE, CLASSIFICATION),
+    PLAYS_RELATES_OVERLAP(Cost.LOCAL, PLAYS, RELATES),
+    ROLE_INHERITANCE(Cost.LOCAL, SUB, PLAYS, RELATES, ROLE_HIERARCHY),
+    ABSTRACT(Cost.QUERY_PER_TYPE, TYPES, CLASSIFICATION);
+
+    /**
+     * How the number of round trips to the server grows with the size of the schema, cheapest first
+     */
+    public enum Cost {
+        LOCAL,
+        QUERY,
+        QUERY_PER_TYPE,
+        QUERY_PER_TYPE_PAIR
+    }
+
+    /**
+     * Order in which ready phases are started under a time budget: cheapest first, then the phase that
+     * unblocks the most other phases, then declaration order
+     */
+    public static final Comparator<ValidationPhase> PRIORITY = Comparator
+            .comparing(ValidationPhase::cost)
+            .thenComparing(Comparator.comparingInt(ValidationPhase::dependents).reversed())
+            .thenComparing(Comparator.naturalOrder());
+
+    private final Cost cost;
+    private final List<ValidationPhase> dependencies;
+
+    ValidationPhase(Cost cost, ValidationPhase... dependencies) {
+        this.cost = cost;
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    public Cost cost() {
+        return cost;
+    }
+
+    public List<ValidationPhase> dependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Number of phases that directly or transitively depend on this one
+     */
+    public int dependents() {
+        Set<ValidationPhase> dependents = EnumSet.noneOf(ValidationPhase.class);
+        // declaration order is topological, so one forward pass finds every transitive dependent
+        for (ValidationPhase phase : values()) {
+            for (ValidationPhase dependency : phase.dependencies) {
+                if (dependency == this || dependents.contains(dependency)) {
+                    dependents.add(phase);
+                    break;
+                }
+            }
+        }
+        return dependents.size();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of validating a single keyspace
+ */
+public class ValidationReport {
+
+    public enum Status {
+        VALID,
+        INVALID,
+        ERROR,
+        INCOMPLETE
+    }
+
+    public enum PhaseStatus {
+        PASSED,
+        FAILED,
+        ERROR,
+        SKIPPED,
+        INCOMPLETE  // still running or not yet started when the time budget ran out
+    }
+
+    private final String keyspace;
+    private final Status status;
+    private final Map<ValidationPhase, PhaseStatus> phases;
+    private final List<IntegrityException> violations;
+    private final Exception error;
+    private final long elapsedMillis;
+
+    private ValidationReport(String keyspace, Status status, Map<ValidationPhase, PhaseStatus> phases,
+                             List<IntegrityException> violations, Exception error, long elapsedMillis) {
+        this.keyspace = keyspace;
+        this.status = status;
+        this.phases = phases;
+        this.violations = violations;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public static ValidationReport valid(String keyspace, long elapsedMillis) {
+        return new ValidationReport(keyspace, Status.VALID, Collections.emptyMap(), Collections.emptyList(), null, elapsedMillis);
+    }
+
+    public static ValidationReport invalid(String keyspace, List<IntegrityException> violations, long elapsedMillis) {
+        return new ValidationReport(keyspace, Status.INVALID, Collections.emptyMap(), Collections.unmodifiableList(violations), null, elapsedMillis);
+    }
+
+    /**
+     * Validation could not be completed, for example because the keyspace could not be reached
+     */
+    public static ValidationReport error(String keyspace, Exception error, long elapsedMillis) {
+        return new ValidationReport(keyspace, Status.ERROR, Collections.emptyMap(), Collections.emptyList(), error, elapsedMillis);
+    }
+
+    /**
+     * Report of a phase-by-phase validation: invalid if any violation was found, otherwise an error if any phase
+     * could not be completed, otherwise incomplete if the time budget ran out before every phase finished
+     */
+    public static ValidationReport of(String keyspace, Map<ValidationPhase, PhaseStatus> phases,
+                                      List<IntegrityException> violations, Exception error, long elapsedMillis) {
+        Status status;
+        if (!violations.isEmpty()) status = Status.INVALID;
+        else if (error != null) status = Status.ERROR;
+        else if (phases.containsValue(PhaseStatus.INCOMPLETE)) status = Status.INCOMPLETE;
+        else status = Status.VALID;
+        Map<ValidationPhase, PhaseStatus> phaseStatuses = new EnumMap<>(ValidationPhase.class);
+        phaseStatuses.putAll(phases);
+        return new ValidationReport(keyspace, status, Collections.unmodifiableMap(phaseStatuses),
+                Collections.unmodifiableList(violations), error, elapsedMillis);
+    }
+
+    public String keyspace() { return keyspace; }
+    public Status status() { return status; }
+    public Map<ValidationPhase, PhaseStatus> phases() { return phases; }
+    public List<IntegrityException> violations() { return violations; }
+    public Exception error() { return error; }
+    public long elapsedMillis() { return elapsedMillis; }
+
+    /**
+     * Phases with the given status, in declaration order. Phases that are INCOMPLETE are the ones left to run
+     * in a later validation.
+     */
+    public List<ValidationPhase> phases(PhaseStatus status) {
+        List<ValidationPhase> matching = new ArrayList<>();
+        phases.forEach((phase, phaseStatus) -> {
+            if (phaseStatus == status) matching.add(phase);
+        });
+        return matching;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(keyspace).append(": ").append(status).append(" in ").append(elapsedMillis).append("ms");
+        phases.forEach((phase, phaseStatus) -> stringBuilder.append("\n  ").append(phase).append(": ").append(phaseStatus));
+        for (IntegrityException violation : violations) {
+            stringBuilder.append("\n  ").append(violation.getMessage());
+        }
+        if (error != null) {
+            stringBuilder.append("\n  ").append(error);
+        }
+        return stringBuilder.toString();
+    }
+}
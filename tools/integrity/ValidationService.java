@@ -0,0 +1,101 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import grakn.client.GraknClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Validates many keyspaces of one Grakn server through a single shared client
+ *
+ * At most `maxSessions` keyspaces are validated at once, each with its own session, and all the validators
+ * share one pool of `maxTransactions` transaction permits, so the load on the server stays bounded
+ * however many keyspaces are queued.
+ */
+public class ValidationService implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ValidationService.class);
+
+    private final GraknClient client;
+    private final ExecutorService sessionExecutor;
+    private final Semaphore transactionPermits;
+
+    public ValidationService(GraknClient client, int maxSessions, int maxTransactions) {
+        if (maxSessions < 1 || maxTransactions < 1) {
+            throw new IllegalArgumentException("Validation needs at least one session and one transaction");
+        }
+        this.client = client;
+        this.sessionExecutor = Executors.newFixedThreadPool(maxSessions);
+        this.transactionPermits = new Semaphore(maxTransactions, true);
+    }
+
+    /**
+     * @return one report per keyspace, in the order the keyspaces were given
+     */
+    public List<ValidationReport> validate(List<String> keyspaces) {
+        List<Future<ValidationReport>> pending = new ArrayList<>();
+        for (String keyspace : keyspaces) {
+            pending.add(sessionExecutor.submit(() -> validateKeyspace(keyspace)));
+        }
+
+        List<ValidationReport> reports = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                reports.add(pending.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for keyspace validations", e);
+            } catch (ExecutionException e) {
+                reports.add(ValidationReport.error(keyspaces.get(i), e, 0));
+            }
+        }
+        return reports;
+    }
+
+    private ValidationReport validateKeyspace(String keyspace) {
+        LOG.info("Validating keyspace {}", keyspace);
+        long start = System.currentTimeMillis();
+        ValidationReport report;
+        try (GraknClient.Session session = client.session(keyspace)) {
+            new Validator(session, transactionPermits).validate();
+            report = ValidationReport.valid(keyspace, System.currentTimeMillis() - start);
+        } catch (IntegrityException e) {
+            report = ValidationReport.invalid(keyspace, Collections.singletonList(e), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            report = ValidationReport.error(keyspace, e, System.currentTimeMillis() - start);
+        }
+        LOG.info("Finished keyspace {}: {}", keyspace, report.status());
+        return report;
+    }
+
+    @Override
+    public void close() {
+        sessionExecutor.shutdownNow();
+    }
+}
@@ -26,14 +26,30 @@ import grakn.common.util.Pair;
 import grakn.verification.tools.integrity.schema.Has;
 import grakn.verification.tools.integrity.schema.Plays;
 import grakn.verification.tools.integrity.schema.Relates;
+import grakn.verification.tools.integrity.schema.RoleHierarchy;
+import grakn.verification.tools.integrity.schema.RoleSub;
 import grakn.verification.tools.integrity.schema.Sub;
 import grakn.verification.tools.integrity.schema.TransitiveSub;
+import grakn.verification.tools.integrity.schema.TypeClassification;
 import graql.lang.Graql;
 import graql.lang.query.GraqlGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class Validator {
 
@@ -57,83 +73,280 @@ public class Validator {
         public String getName() { return name; }
     }
 
+    private static final Consumer<IntegrityException> THROW = violation -> {
+        throw violation;
+    };
+
+    // how long interrupted phases are given to wind down once a time budget runs out
+    private static final long CANCELLATION_GRACE_MILLIS = 10000;
+
     private GraknClient.Session session;
+    private Semaphore transactionPermits;
+    private final Set<GraknClient.Transaction> openTransactions = ConcurrentHashMap.newKeySet();
 
     public Validator(GraknClient.Session session) {
+        this(session, new Semaphore(Integer.MAX_VALUE));
+    }
+
+    /**
+     * @param transactionPermits bounds the number of transactions open at once, may be shared between validators
+     */
+    public Validator(GraknClient.Session session, Semaphore transactionPermits) {
         this.session = session;
+        this.transactionPermits = transactionPermits;
     }
 
+    /**
+     * Run every phase in order, throwing the first violation found
+     */
     public boolean validate() {
-        RejectDuplicateSet<Type> types = createAndValidateTypes();
-        RejectDuplicateSet<Type> roles = createAndValidateRoles(); // TODO figure out how we want to deal with roles, esp role inheritance
-        Sub sub = createAndValidateSub(types);
-        TransitiveSub transitiveSub = createAndValidateTransitiveSubWithoutIdentity(sub);
-
-        RejectDuplicateSet<Type> entities = createEntityTypes(transitiveSub);
-        RejectDuplicateSet<Type> relations = createRelationTypes(transitiveSub);
-        RejectDuplicateSet<Type> attributes = createAttributeTypes(transitiveSub);
+        validateSchema();
+        return true;
+    }
 
-        Has has = createAndValidateHas(types, attributes);
-        Has key = createAndValidateKey(types, attributes, has);
+    /**
+     * Run every phase in order, throwing the first violation found
+     * @return the validated schema-level sets
+     */
+    public ValidatedSchema validateSchema() {
+        Map<ValidationPhase, Object> results = new EnumMap<>(ValidationPhase.class);
+        for (ValidationPhase phase : ValidationPhase.values()) {
+            Object result = runPhase(phase, results, THROW);
+            if (result != null) results.put(phase, result);
+        }
+        return new ValidatedSchema(results);
+    }
 
-        Plays plays = createAndValidatePlays(types, roles);
-        Relates relates = createAndValidateRelates(relations, roles);
-        validatePlaysAndRelatesOverlap(plays, relates);
+    /**
+     * Run independent phases concurrently and collect violations instead of stopping at the first one
+     *
+     * @param violationCap once this many violations are collected, phases that have not started yet are skipped
+     * @param parallelism maximum number of phases running at once
+     */
+    public ValidationReport validateAll(String keyspace, int violationCap, int parallelism) {
+        return validateAll(keyspace, violationCap, parallelism, PhaseScheduler.UNBOUNDED);
+    }
 
-        RejectDuplicateSet<Type>  abstractTypes = createAndValidateAbstractTypes(types);
+    /**
+     * As validateAll, but stop cleanly once the time budget is spent. Cheap phases that unblock the most others
+     * are started first; phases that were running or not yet started are reported INCOMPLETE, to be run in a
+     * later window.
+     *
+     * Running phases are interrupted and their open transactions closed, and this only returns once they have
+     * stopped, or after a bounded grace period.
+     *
+     * @param budgetMillis wall clock time allowed for the whole validation
+     */
+    public ValidationReport validateAll(String keyspace, int violationCap, int parallelism, long budgetMillis) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            return new PhaseScheduler(executor, violationCap, parallelism, budgetMillis).run(keyspace, this::runPhase, this::closeOpenTransactions);
+        } finally {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(CANCELLATION_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("Validation phases of {} were still running {}ms after being cancelled", keyspace, CANCELLATION_GRACE_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            closeOpenTransactions();
+        }
+    }
 
-        return true;
+    Object runPhase(ValidationPhase phase, Map<ValidationPhase, Object> results, Consumer<IntegrityException> violations) {
+        switch (phase) {
+            case TYPES:
+                return createAndValidateTypes(violations);
+            case ROLES:
+                return createAndValidateRoles(violations);
+            case ROLE_SUB:
+                return createAndValidateRoleSub(result(results, ValidationPhase.ROLES), violations);
+            case ROLE_HIERARCHY:
+                return createAndValidateRoleHierarchy(result(results, ValidationPhase.ROLES), result(results, ValidationPhase.ROLE_SUB), violations);
+            case SUB:
+                return createAndValidateSub(result(results, ValidationPhase.TYPES), violations);
+            case TRANSITIVE_SUB:
+                return createAndValidateTransitiveSubWithoutIdentity(result(results, ValidationPhase.SUB), violations);
+            case CLASSIFICATION:
+                return createTypeClassification(result(results, ValidationPhase.TRANSITIVE_SUB), result(results, ValidationPhase.ROLES));
+            case HAS: {
+                TypeClassification classification = result(results, ValidationPhase.CLASSIFICATION);
+                return createAndValidateHas(result(results, ValidationPhase.TYPES), classification.attributes(), classification, violations);
+            }
+            case KEY: {
+                TypeClassification classification = result(results, ValidationPhase.CLASSIFICATION);
+                return createAndValidateKey(result(results, ValidationPhase.TYPES), classification.attributes(), result(results, ValidationPhase.HAS), classification, violations);
+            }
+            case PLAYS:
+                return createAndValidatePlays(result(results, ValidationPhase.TYPES), result(results, ValidationPhase.CLASSIFICATION), violations);
+            case RELATES: {
+                TypeClassification classification = result(results, ValidationPhase.CLASSIFICATION);
+                return createAndValidateRelates(classification.relations(), classification, violations);
+            }
+            case PLAYS_RELATES_OVERLAP:
+                validatePlaysAndRelatesOverlap(result(results, ValidationPhase.PLAYS), result(results, ValidationPhase.RELATES), violations);
+                return null;
+            case ROLE_INHERITANCE:
+                validateRoleInheritance(result(results, ValidationPhase.SUB), result(results, ValidationPhase.PLAYS),
+                        result(results, ValidationPhase.RELATES), result(results, ValidationPhase.ROLE_HIERARCHY), violations);
+                return null;
+            case ABSTRACT:
+                return createAndValidateAbstractTypes(result(results, ValidationPhase.TYPES), result(results, ValidationPhase.CLASSIFICATION), violations);
+            default:
+                throw new IllegalArgumentException("Unknown validation phase " + phase);
+        }
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> T result(Map<ValidationPhase, Object> results, ValidationPhase phase) {
+        return (T) results.get(phase);
+    }
 
     void validatePlaysAndRelatesOverlap(Plays plays, Relates relates) {
+        validatePlaysAndRelatesOverlap(plays, relates, THROW);
+    }
+
+    void validatePlaysAndRelatesOverlap(Plays plays, Relates relates, Consumer<IntegrityException> violations) {
         // every role that is played must be related
+        Set<Type> relatedRoles = new HashSet<>();
+        for (Pair<Type, Type> relatesRole : relates) {
+            relatedRoles.add(relatesRole.second());
+        }
         for (Pair<Type, Type> playsRole : plays) {
-            boolean found = false;
-            for (Pair<Type, Type> relatesRole : relates) {
-                if (playsRole.second().equals(relatesRole.second())) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                throw IntegrityException.playedRoleIsNotRelated(playsRole.second(), playsRole.first());
+            if (!relatedRoles.contains(playsRole.second())) {
+                violations.accept(IntegrityException.playedRoleIsNotRelated(playsRole.second(), playsRole.first()));
             }
         }
     }
 
-    RejectDuplicateSet<Type> createAndValidateTypes() {
+    RejectDuplicateSet<Type> createAndValidateTypes(Consumer<IntegrityException> violations) {
         LOG.info("Retrieving RejectDuplicateSet<Type> ...");
         RejectDuplicateSet<Type> types = new RejectDuplicateSet<Type> ();
-        try (GraknClient.Transaction tx = session.transaction().read()) {
+        read(tx -> {
             List<ConceptMap> answers = tx.execute(Graql.parse("match $x sub thing; get;").asGet());
             for (ConceptMap answer : answers) {
                 types.add(new Type(answer.get("x").asSchemaConcept()));
             }
-        }
+        });
         LOG.info("...validating RejectDuplicateSet<Type> ");
-        types.validate();
+        types.validate(violations);
         return types;
     }
 
-    RejectDuplicateSet<Type> createAndValidateRoles() {
+    /**
+     * Check plays and relates of every type against those of its direct parent, using the role hierarchy
+     * to resolve inheritance and overriding locally:
+     * - a type plays every role its parent plays
+     * - a relation relates every role its parent relates, except the roles it overrides with a sub role
+     * - a role that overrides another must override a role related by the parent
+     */
+    void validateRoleInheritance(Sub sub, Plays plays, Relates relates, RoleHierarchy roleHierarchy) {
+        validateRoleInheritance(sub, plays, relates, roleHierarchy, THROW);
+    }
+
+    void validateRoleInheritance(Sub sub, Plays plays, Relates relates, RoleHierarchy roleHierarchy, Consumer<IntegrityException> violations) {
+        Map<Type, Set<Type>> playedRoles = groupByFirst(plays);
+        Map<Type, Set<Type>> relatedRoles = groupByFirst(relates);
+
+        for (Pair<Type, Type> subEntry : sub) {
+            Type child = subEntry.first();
+            Type parent = subEntry.second();
+
+            Set<Type> childPlays = playedRoles.getOrDefault(child, Collections.emptySet());
+            Set<Type> parentPlays = playedRoles.getOrDefault(parent, Collections.emptySet());
+            for (Type role : roleHierarchy.inheritPlays(declared(childPlays, parentPlays), parentPlays)) {
+                if (!childPlays.contains(role)) {
+                    violations.accept(IntegrityException.inheritedRoleNotPlayed(child, role, parent));
+                }
+            }
+
+            Set<Type> childRelates = relatedRoles.getOrDefault(child, Collections.emptySet());
+            Set<Type> parentRelates = relatedRoles.getOrDefault(parent, Collections.emptySet());
+            Set<Type> declaredRelates = declared(childRelates, parentRelates);
+            for (Type role : declaredRelates) {
+                Type overriddenRole = roleHierarchy.parent(role);
+                if (overriddenRole != null && !overriddenRole.label().equals(RoleHierarchy.META_ROLE) && !parentRelates.contains(overriddenRole)) {
+                    violations.accept(IntegrityException.roleOverridesUnrelatedRole(child, role, overriddenRole));
+                }
+            }
+            Set<Type> resolvedRelates = roleHierarchy.inheritRelates(declaredRelates, parentRelates);
+            for (Type role : resolvedRelates) {
+                if (!childRelates.contains(role)) {
+                    violations.accept(IntegrityException.inheritedRoleNotRelated(child, role, parent));
+                }
+            }
+            for (Type role : childRelates) {
+                if (!resolvedRelates.contains(role)) {
+                    violations.accept(IntegrityException.overriddenRoleStillRelated(child, role));
+                }
+            }
+        }
+    }
+
+    private static Set<Type> declared(Set<Type> own, Set<Type> inheritedFromParent) {
+        Set<Type> declared = new HashSet<>(own);
+        declared.removeAll(inheritedFromParent);
+        return declared;
+    }
+
+    private static Map<Type, Set<Type>> groupByFirst(Iterable<Pair<Type, Type>> pairs) {
+        Map<Type, Set<Type>> grouped = new HashMap<>();
+        for (Pair<Type, Type> pair : pairs) {
+            grouped.computeIfAbsent(pair.first(), first -> new HashSet<>()).add(pair.second());
+        }
+        return grouped;
+    }
+
+    RejectDuplicateSet<Type> createAndValidateRoles(Consumer<IntegrityException> violations) {
         LOG.info("Retrieving roles...");
         RejectDuplicateSet<Type>  roles = new RejectDuplicateSet<Type> ();
-        try (GraknClient.Transaction tx = session.transaction().read()) {
+        read(tx -> {
             List<ConceptMap> answers = tx.execute(Graql.parse("match $x sub role; get;").asGet());
             for (ConceptMap answer : answers) {
                 roles.add(new Type(answer.get("x").asSchemaConcept()));
             }
-        }
+        });
         LOG.info("...validating roles");
-        roles.validate();
+        roles.validate(violations);
         return roles;
     }
 
-    Sub createAndValidateSub(RejectDuplicateSet<Type> types) {
+    RoleSub createAndValidateRoleSub(RejectDuplicateSet<Type> roles, Consumer<IntegrityException> violations) {
+        LOG.info("Constructing Role Sub...");
+        RoleSub roleSub = new RoleSub();
+        read(tx -> {
+            for (Type role : roles) {
+                // a role has at most one parent, so we read it back rather than asking about every pair of roles
+                if (!role.label().equals(RoleHierarchy.META_ROLE)) {
+                    SchemaConcept.Remote parent = tx.getSchemaConcept(Label.of(role.label())).sup();
+                    if (parent != null) {
+                        roleSub.add(new Pair<>(role, new Type(parent)));
+                    }
+                }
+            }
+        });
+        LOG.info("...validating Role Sub");
+        roleSub.validate(violations);
+        return roleSub;
+    }
+
+    RoleHierarchy createAndValidateRoleHierarchy(RejectDuplicateSet<Type> roles, RoleSub roleSub, Consumer<IntegrityException> violations) {
+        LOG.info("Constructing Role Hierarchy...");
+        RoleHierarchy roleHierarchy = roleSub.closure(roles);
+        LOG.info("...validating Role Hierarchy");
+        try {
+            roleHierarchy.validate();
+        } catch (IntegrityException e) {
+            violations.accept(e);
+        }
+        return roleHierarchy;
+    }
+
+    Sub createAndValidateSub(RejectDuplicateSet<Type> types, Consumer<IntegrityException> violations) {
         LOG.info("Constructing Sub...");
         Sub sub = new Sub();
-        try (GraknClient.Transaction tx = session.transaction().read()) {
+        read(tx -> {
             for (Type child : types) {
                 for (Type parent : types) {
                     // TODO we reject transitive sub using sub! but this is broken
@@ -153,17 +366,17 @@ public class Validator {
                     }
                 }
             }
-        }
+        });
         LOG.info("..validating Sub");
-        sub.validate();
+        sub.validate(violations);
         return sub;
     }
 
-    TransitiveSub createAndValidateTransitiveSubWithoutIdentity(Sub sub) {
+    TransitiveSub createAndValidateTransitiveSubWithoutIdentity(Sub sub, Consumer<IntegrityException> violations) {
         LOG.info("Constructing Transitive Sub...");
         TransitiveSub graknTransitiveSub = new TransitiveSub();
 
-        try (GraknClient.Transaction tx = session.transaction().write()) {
+        write(tx -> {
             for (Pair<Type, Type> sub1 : sub) {
                 for (Pair<Type, Type> sub2 : sub) {
                     // don't include (x,x) in the transitive sub closure
@@ -177,53 +390,25 @@ public class Validator {
                     }
                 }
             }
-        }
+        });
         LOG.info("...validating Transitive Sub...");
-        graknTransitiveSub.validate();
+        graknTransitiveSub.validate(violations);
         return graknTransitiveSub;
     }
 
-    RejectDuplicateSet<Type> createEntityTypes(TransitiveSub transitiveSub) {
-        LOG.info("Constructing entity RejectDuplicateSet<Type>  set");
-        RejectDuplicateSet<Type>  entityTypes = new RejectDuplicateSet<Type> ();
-        for (Pair<Type, Type> sub : transitiveSub) {
-            if (sub.second().label().equals("entity")) {
-                entityTypes.add(sub.first());
-            }
-        }
-        // TODO validate against Grakn that these are agreed to be entity RejectDuplicateSet<Type> 
-        return entityTypes;
-    }
-
-    RejectDuplicateSet<Type> createRelationTypes(TransitiveSub transitiveSub) {
-        LOG.info("Constructing relation RejectDuplicateSet<Type>  set");
-        RejectDuplicateSet<Type>  entityTypes = new RejectDuplicateSet<Type>();
-        for (Pair<Type, Type> sub : transitiveSub) {
-            if (sub.second().label().equals("relation")) {
-                entityTypes.add(sub.first());
-            }
-        }
-        // TODO validate against Grakn that these are agreed to be relation RejectDuplicateSet<Type> 
-        return entityTypes;
+    TypeClassification createTypeClassification(TransitiveSub transitiveSub, RejectDuplicateSet<Type> roles) {
+        LOG.info("Constructing type classification...");
+        TypeClassification classification = TypeClassification.of(transitiveSub);
+        classification.markAll(roles, TypeClassification.ROLE);
+        // TODO validate against Grakn that these are agreed to be entity, relation and attribute types
+        return classification;
     }
 
-    RejectDuplicateSet<Type> createAttributeTypes(TransitiveSub transitiveSub) {
-        LOG.info("Constructing attribute RejectDuplicateSet<Type>  set");
-        RejectDuplicateSet<Type>  entityTypes = new RejectDuplicateSet<Type> ();
-        for (Pair<Type, Type> sub : transitiveSub) {
-            if (sub.second().label().equals("attribute")) {
-                entityTypes.add(sub.first());
-            }
-        }
-        // TODO validate against Grakn that these are agreed to be attribute RejectDuplicateSet<Type> 
-        return entityTypes;
-    }
-
-    Has createAndValidateHas(RejectDuplicateSet<Type> types, RejectDuplicateSet<Type> attributes) {
+    Has createAndValidateHas(RejectDuplicateSet<Type> types, RejectDuplicateSet<Type> attributes, TypeClassification classification, Consumer<IntegrityException> violations) {
         LOG.info("Constructing Has set...");
-        Has has = new Has();
+        Has has = new Has(classification);
 
-        try (GraknClient.Transaction tx = session.transaction().read()) {
+        read(tx -> {
             for (Type type : types) {
                 for (Type attribute : attributes) {
                     // TODO - how to verify that the `has` is not inherited?
@@ -234,18 +419,18 @@ public class Validator {
                     }
                 }
             }
-        }
+        });
 
         LOG.info("...validating Has set");
-        has.validate();
+        has.validate(violations);
         return has;
     }
 
-    Has createAndValidateKey(RejectDuplicateSet<Type> types, RejectDuplicateSet<Type> attributes, Has has) {
+    Has createAndValidateKey(RejectDuplicateSet<Type> types, RejectDuplicateSet<Type> attributes, Has has, TypeClassification classification, Consumer<IntegrityException> violations) {
         LOG.info("Constructing Key set...");
-        Has key = new Has();
+        Has key = new Has(classification);
 
-        try (GraknClient.Transaction tx = session.transaction().read()) {
+        read(tx -> {
             for (Type type : types) {
                 for (Type attribute : attributes) {
                     // TODO - how to verify that the `key` is not inherited?
@@ -256,15 +441,15 @@ public class Validator {
                     }
                 }
             }
-        }
+        });
 
         LOG.info("...validating Key set");
-        key.validate();
+        key.validate(violations);
 
         // also validate key is a subset of has
         for (Pair<Type, Type> keyship : key) {
             if (!has.contains(keyship)) {
-                throw IntegrityException.keyshipNotSubsetOfOwnership(keyship.first(), keyship.second());
+                violations.accept(IntegrityException.keyshipNotSubsetOfOwnership(keyship.first(), keyship.second()));
             }
         }
 
@@ -272,79 +457,115 @@ public class Validator {
     }
 
 
-    private Relates createAndValidateRelates(RejectDuplicateSet<Type> relations, RejectDuplicateSet<Type> roles) {
+    Relates createAndValidateRelates(RejectDuplicateSet<Type> relations, TypeClassification classification, Consumer<IntegrityException> violations) {
         LOG.info("Constructing Relates set...");
-        Relates relates = new Relates();
-        try (GraknClient.Transaction tx = session.transaction().read()) {
+        Relates relates = new Relates(classification);
+        read(tx -> {
             for (Type relation : relations) {
-                for (Type role : roles) {
-                    GraqlGet query = Graql.parse(String.format("match $type type %s; $type relates %s; get;", relation, role)).asGet();
-                    boolean trueInGrakn = ask(tx, query);
-                    if (trueInGrakn) {
-                        relates.add(new Pair<>(relation, role));
-                    }
+                // one query per relation: inheritance and overriding of the related roles are then checked locally
+                GraqlGet query = Graql.parse(String.format("match $type type %s; $type relates $role; get $role;", relation)).asGet();
+                for (ConceptMap answer : tx.execute(query)) {
+                    relates.add(new Pair<>(relation, new Type(answer.get("role").asSchemaConcept())));
                 }
             }
-        }
+        });
 
         LOG.info("...validating Relates set");
-        relates.validate();
+        relates.validate(violations);
 
         // also validate that every relation has at least one role
+        Set<Type> relationsWithRoles = new HashSet<>();
+        for (Pair<Type, Type> relatesRole : relates) {
+            relationsWithRoles.add(relatesRole.first());
+        }
         for (Type relation : relations) {
-            boolean found = false;
-            for (Pair<Type, Type> relatesRole : relates) {
-                if (relatesRole.first().equals(relation)) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                throw IntegrityException.relationWithoutRole(relation);
+            if (!relationsWithRoles.contains(relation)) {
+                violations.accept(IntegrityException.relationWithoutRole(relation));
             }
         }
         return relates;
     }
 
-    private Plays createAndValidatePlays(RejectDuplicateSet<Type> types, RejectDuplicateSet<Type> roles) {
-        LOG.info("Constructing Relates set...");
-        Plays plays = new Plays();
-        try (GraknClient.Transaction tx = session.transaction().read()) {
-            for (Type relation : types) {
-                for (Type role : roles) {
-                    GraqlGet query = Graql.parse(String.format("match $type relates %s; $type plays %s; get;", relation, role)).asGet();
-                    boolean trueInGrakn = ask(tx, query);
-                    if (trueInGrakn) {
-                        plays.add(new Pair<>(relation, role));
-                    }
+    Plays createAndValidatePlays(RejectDuplicateSet<Type> types, TypeClassification classification, Consumer<IntegrityException> violations) {
+        LOG.info("Constructing Plays set...");
+        Plays plays = new Plays(classification);
+        read(tx -> {
+            for (Type type : types) {
+                // one query per type: inheritance of the played roles is then checked locally
+                GraqlGet query = Graql.parse(String.format("match $type type %s; $type plays $role; get $role;", type)).asGet();
+                for (ConceptMap answer : tx.execute(query)) {
+                    plays.add(new Pair<>(type, new Type(answer.get("role").asSchemaConcept())));
                 }
             }
-        }
+        });
 
-        LOG.info("...validating Relates set");
-        plays.validate();
+        LOG.info("...validating Plays set");
+        plays.validate(violations);
         return plays;
     }
 
-    private RejectDuplicateSet<Type> createAndValidateAbstractTypes(RejectDuplicateSet<Type> types) {
+    RejectDuplicateSet<Type> createAndValidateAbstractTypes(RejectDuplicateSet<Type> types, TypeClassification classification, Consumer<IntegrityException> violations) {
         LOG.info("Constructing Abstract set...");
 
         RejectDuplicateSet<Type> abstractTypes = new RejectDuplicateSet<Type>();
-        try (GraknClient.Transaction tx = session.transaction().read()) {
+        read(tx -> {
             for (Type type : types) {
-                GraqlGet query = Graql.parse(String.format("match $owner type %s; $type abstract; get;", type)).asGet();
+                GraqlGet query = Graql.parse(String.format("match $type type %s; $type abstract; get;", type)).asGet();
                 boolean trueInGrakn = ask(tx, query);
                 if (trueInGrakn) {
                     abstractTypes.add(type);
                 }
             }
-        }
+        });
 
         LOG.info("Validating Abstract set");
-        abstractTypes.validate();
+        abstractTypes.validate(violations);
+        classification.markAll(abstractTypes, TypeClassification.ABSTRACT);
         return abstractTypes;
     }
 
+    private void read(Consumer<GraknClient.Transaction> body) {
+        inTransaction(false, body);
+    }
+
+    private void write(Consumer<GraknClient.Transaction> body) {
+        inTransaction(true, body);
+    }
+
+    private void inTransaction(boolean write, Consumer<GraknClient.Transaction> body) {
+        try {
+            transactionPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a transaction permit");
+        }
+        try (GraknClient.Transaction tx = write ? session.transaction().write() : session.transaction().read()) {
+            openTransactions.add(tx);
+            try {
+                body.accept(tx);
+            } finally {
+                openTransactions.remove(tx);
+            }
+        } finally {
+            transactionPermits.release();
+        }
+    }
+
+    /**
+     * Close the transactions of phases that are still running, so that cancelled phases stop querying the server
+     * even where the client does not respond to interrupts
+     */
+    private void closeOpenTransactions() {
+        for (GraknClient.Transaction tx : openTransactions) {
+            try {
+                tx.close();
+            } catch (RuntimeException e) {
+                LOG.warn("Could not close the transaction of a cancelled validation phase", e);
+            }
+            openTransactions.remove(tx);
+        }
+    }
+
     private boolean ask(GraknClient.Transaction tx, GraqlGet query) {
         List<ConceptMap> answer = tx.execute(query);
         return answer.size() == 1;
@@ -366,6 +587,7 @@ public class Validator {
          * Type_attr, subset of type with (t, attribute) in sub_trans -- plus Type_entity and Type_relation
          * has: (Type, Type_attr)
          * key: (Type, Type_attr)
+         * role sub, and its transitive closure
          * plays: (Type, Role)
          * relates: (Type_relation, Role)
          * abstract: Type
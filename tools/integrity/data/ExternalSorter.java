@@ -0,0 +1,251 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sort more items than fit in memory: items are buffered up to a fixed run size, each full buffer is sorted
+ * and spilled to a temporary file, and the sorted runs are read back through a k-way merge.
+ * At most fanIn runs are open at once: while there are more, groups of fanIn runs are merged into longer runs first.
+ * Heap use is bounded by one run while adding, and by fanIn items and buffers while merging.
+ */
+public class ExternalSorter<T> implements AutoCloseable {
+
+    public interface Codec<T> {
+        void write(DataOutput out, T item) throws IOException;
+        T read(DataInput in) throws IOException;
+    }
+
+    private static final int DEFAULT_FAN_IN = 64;
+
+    private final Comparator<T> comparator;
+    private final Codec<T> codec;
+    private final int runSize;
+    private final int fanIn;
+    private final List<T> buffer;
+    private final List<Path> runs;
+    private final List<DataInputStream> openRuns;
+    private boolean merging;
+
+    public ExternalSorter(Comparator<T> comparator, Codec<T> codec, int runSize) {
+        this(comparator, codec, runSize, DEFAULT_FAN_IN);
+    }
+
+    public ExternalSorter(Comparator<T> comparator, Codec<T> codec, int runSize, int fanIn) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("Run size must be at least 1, got " + runSize);
+        }
+        if (fanIn < 2) {
+            throw new IllegalArgumentException("Fan-in must be at least 2, got " + fanIn);
+        }
+        this.comparator = comparator;
+        this.codec = codec;
+        this.runSize = runSize;
+        this.fanIn = fanIn;
+        this.buffer = new ArrayList<>();
+        this.runs = new ArrayList<>();
+        this.openRuns = new ArrayList<>();
+        this.merging = false;
+    }
+
+    public void add(T item) {
+        if (merging) {
+            throw new IllegalStateException("Cannot add items to a sorter that is already being merged");
+        }
+        buffer.add(item);
+        if (buffer.size() >= runSize) {
+            spill();
+        }
+    }
+
+    public int runs() {
+        return runs.size();
+    }
+
+    /**
+     * All added items in sorted order. May only be called once, after the last add.
+     */
+    public Iterator<T> sorted() {
+        if (merging) {
+            throw new IllegalStateException("Sorted items can only be read once");
+        }
+        merging = true;
+        if (runs.isEmpty()) {
+            // everything fit in a single run, no need to touch the disk
+            buffer.sort(comparator);
+            return buffer.iterator();
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        while (runs.size() > fanIn) {
+            mergePass();
+        }
+        Merge merge = new Merge(runs);
+        openRuns.addAll(merge.sources);
+        return merge;
+    }
+
+    private void spill() {
+        buffer.sort(comparator);
+        writeRun(buffer.iterator());
+        buffer.clear();
+    }
+
+    /**
+     * Merge each group of fanIn runs into a single run, dividing the number of runs by fanIn
+     */
+    private void mergePass() {
+        List<Path> pass = new ArrayList<>(runs);
+        for (int start = 0; start + 1 < pass.size(); start += fanIn) {
+            List<Path> group = pass.subList(start, Math.min(start + fanIn, pass.size()));
+            Merge merge = new Merge(group);
+            try {
+                writeRun(merge);
+            } finally {
+                merge.close();
+            }
+            try {
+                for (Path run : group) {
+                    Files.deleteIfExists(run);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            runs.removeAll(group);
+        }
+    }
+
+    private void writeRun(Iterator<T> items) {
+        try {
+            Path run = Files.createTempFile("integrity-sort-", ".run");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+                while (items.hasNext()) {
+                    codec.write(out, items.next());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (DataInputStream in : openRuns) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // best effort, the file is deleted below regardless
+            }
+        }
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private class Head {
+        final T item;
+        final DataInputStream source;
+
+        Head(T item, DataInputStream source) {
+            this.item = item;
+            this.source = source;
+        }
+    }
+
+    private class Merge implements Iterator<T> {
+
+        private final PriorityQueue<Head> heads;
+        private final List<DataInputStream> sources;
+
+        Merge(List<Path> mergedRuns) {
+            heads = new PriorityQueue<>(mergedRuns.size(), (first, second) -> comparator.compare(first.item, second.item));
+            sources = new ArrayList<>(mergedRuns.size());
+            try {
+                for (Path run : mergedRuns) {
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+                    sources.add(in);
+                    advance(in);
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            for (DataInputStream in : sources) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // best effort, the file is deleted by the sorter regardless
+                }
+            }
+        }
+
+        private void advance(DataInputStream in) {
+            try {
+                heads.add(new Head(codec.read(in), in));
+            } catch (EOFException e) {
+                // run exhausted
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.source);
+            return head.item;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * One row of key_data: an owner and the value it holds for a key type.
+ * A null value marks an owner that must have the key, so that owners with no key at all still appear in the sort.
+ */
+public class KeyTuple {
+
+    // owner markers (null value) sort before the owner's values
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    public static final Comparator<KeyTuple> BY_OWNER = Comparator
+            .comparing((KeyTuple tuple) -> tuple.keyType)
+            .thenComparing(tuple -> tuple.owner)
+            .thenComparing(tuple -> tuple.value, NULLS_FIRST);
+
+    public static final Comparator<KeyTuple> BY_VALUE = Comparator
+            .comparing((KeyTuple tuple) -> tuple.keyType)
+            .thenComparing(tuple -> tuple.value, NULLS_FIRST)
+            .thenComparing(tuple -> tuple.owner);
+
+    public static final ExternalSorter.Codec<KeyTuple> CODEC = new ExternalSorter.Codec<KeyTuple>() {
+        @Override
+        public void write(DataOutput out, KeyTuple tuple) throws IOException {
+            writeString(out, tuple.keyType);
+            writeString(out, tuple.ownerType);
+            writeString(out, tuple.owner);
+            out.writeBoolean(tuple.value != null);
+            if (tuple.value != null) writeString(out, tuple.value);
+        }
+
+        @Override
+        public KeyTuple read(DataInput in) throws IOException {
+            String keyType = readString(in);
+            String ownerType = readString(in);
+            String owner = readString(in);
+            String value = in.readBoolean() ? readString(in) : null;
+            return new KeyTuple(keyType, ownerType, owner, value);
+        }
+    };
+
+    // length-prefixed UTF-8, since writeUTF cannot encode strings longer than 64KB and key values can be
+    private static void writeString(DataOutput out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private final String keyType;
+    private final String ownerType;
+    private final String owner;
+    private final String value;
+
+    public KeyTuple(String keyType, String ownerType, String owner, String value) {
+        this.keyType = keyType;
+        this.ownerType = ownerType;
+        this.owner = owner;
+        this.value = value;
+    }
+
+    public static KeyTuple ownerMarker(String keyType, String ownerType, String owner) {
+        return new KeyTuple(keyType, ownerType, owner, null);
+    }
+
+    public String keyType() { return keyType; }
+    public String ownerType() { return ownerType; }
+    public String owner() { return owner; }
+    public String value() { return value; }
+    public boolean isOwnerMarker() { return value == null; }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(keyType, ownerType, owner, value);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final KeyTuple other = (KeyTuple) obj;
+        return keyType.equals(other.keyType) && ownerType.equals(other.ownerType)
+                && owner.equals(other.owner) && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%s, %s %s, %s)", keyType, ownerType, owner, value);
+    }
+}
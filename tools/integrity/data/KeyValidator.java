@@ -0,0 +1,161 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.data;
+
+import grakn.client.GraknClient;
+import grakn.common.util.Pair;
+import grakn.verification.tools.integrity.IntegrityException;
+import grakn.verification.tools.integrity.Type;
+import grakn.verification.tools.integrity.ValidatedSchema;
+import grakn.verification.tools.integrity.schema.TypeClassification;
+import graql.lang.Graql;
+import graql.lang.query.GraqlGet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Validate key_data: every owner of a type with a key has exactly one value for that key,
+ * and every key value is owned by exactly one instance.
+ *
+ * (owner, key type, value) tuples are streamed from the keyspace into two external sorts, one ordered by owner
+ * and one by value, so both conditions are checked in a single sequential pass each without holding the data in memory.
+ */
+public class KeyValidator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyValidator.class);
+
+    private final GraknClient.Session session;
+    private final ValidatedSchema schema;
+    private final int runSize;
+
+    public KeyValidator(GraknClient.Session session, ValidatedSchema schema, int runSize) {
+        this.session = session;
+        this.schema = schema;
+        this.runSize = runSize;
+    }
+
+    /**
+     * @return the number of violations reported
+     */
+    public long validate(Consumer<IntegrityException> violations) {
+        try (ExternalSorter<KeyTuple> byOwner = new ExternalSorter<>(KeyTuple.BY_OWNER, KeyTuple.CODEC, runSize);
+             ExternalSorter<KeyTuple> byValue = new ExternalSorter<>(KeyTuple.BY_VALUE, KeyTuple.CODEC, runSize)) {
+
+            LOG.info("Streaming key_data ...");
+            long tuples = stream(tuple -> {
+                byOwner.add(tuple);
+                if (!tuple.isOwnerMarker()) byValue.add(tuple);
+            });
+            LOG.info("...sorted " + tuples + " key tuples into " + byOwner.runs() + " + " + byValue.runs() + " spilled runs");
+
+            long found = checkOwners(byOwner.sorted(), violations) + checkValues(byValue.sorted(), violations);
+            LOG.info("...validated key_data, " + found + " violations");
+            return found;
+        }
+    }
+
+    private long stream(Consumer<KeyTuple> sink) {
+        TypeClassification classification = schema.classification();
+        long[] count = {0};
+        try (GraknClient.Transaction tx = session.transaction().read()) {
+            for (Pair<Type, Type> key : schema.key()) {
+                Type ownerType = key.first();
+                Type keyType = key.second();
+                if (classification.isMeta(ownerType) || classification.isAbstract(ownerType)) continue;
+
+                // isa! so an owner is only emitted once, under its direct type
+                GraqlGet owners = Graql.parse(String.format("match $x isa! %s; get $x;", ownerType)).asGet();
+                tx.stream(owners).forEach(answer -> {
+                    sink.accept(KeyTuple.ownerMarker(keyType.label(), ownerType.label(), answer.get("x").id().getValue()));
+                    count[0]++;
+                });
+
+                GraqlGet values = Graql.parse(String.format("match $x isa! %s, has %s $v; get $x, $v;", ownerType, keyType)).asGet();
+                tx.stream(values).forEach(answer -> {
+                    String value = answer.get("v").asAttribute().value().toString();
+                    sink.accept(new KeyTuple(keyType.label(), ownerType.label(), answer.get("x").id().getValue(), value));
+                    count[0]++;
+                });
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * Tuples sorted by KeyTuple.BY_OWNER: each (key type, owner) group is the owner marker followed by its key values
+     */
+    public static long checkOwners(Iterator<KeyTuple> byOwner, Consumer<IntegrityException> violations) {
+        long found = 0;
+        KeyTuple group = null;
+        long values = 0;
+        while (byOwner.hasNext()) {
+            KeyTuple tuple = byOwner.next();
+            if (group == null || !group.keyType().equals(tuple.keyType()) || !group.owner().equals(tuple.owner())) {
+                found += reportOwner(group, values, violations);
+                group = tuple;
+                values = 0;
+            }
+            if (!tuple.isOwnerMarker()) values++;
+        }
+        return found + reportOwner(group, values, violations);
+    }
+
+    private static long reportOwner(KeyTuple group, long values, Consumer<IntegrityException> violations) {
+        if (group == null || values == 1) return 0;
+        if (values == 0) {
+            violations.accept(IntegrityException.ownerMissingKey(group.owner(), group.ownerType(), group.keyType()));
+        } else {
+            violations.accept(IntegrityException.ownerHasMultipleKeys(group.owner(), group.ownerType(), group.keyType(), values));
+        }
+        return 1;
+    }
+
+    /**
+     * Tuples sorted by KeyTuple.BY_VALUE, without owner markers: each (key type, value) group lists its owners in order
+     */
+    public static long checkValues(Iterator<KeyTuple> byValue, Consumer<IntegrityException> violations) {
+        long found = 0;
+        KeyTuple group = null;
+        String lastOwner = null;
+        long owners = 0;
+        while (byValue.hasNext()) {
+            KeyTuple tuple = byValue.next();
+            if (group == null || !group.keyType().equals(tuple.keyType()) || !group.value().equals(tuple.value())) {
+                found += reportValue(group, owners, violations);
+                group = tuple;
+                lastOwner = null;
+                owners = 0;
+            }
+            if (!tuple.owner().equals(lastOwner)) {
+                owners++;
+                lastOwner = tuple.owner();
+            }
+        }
+        return found + reportValue(group, owners, violations);
+    }
+
+    private static long reportValue(KeyTuple group, long owners, Consumer<IntegrityException> violations) {
+        if (group == null || owners <= 1) return 0;
+        violations.accept(IntegrityException.keyValueNotUnique(group.keyType(), group.value(), owners));
+        return 1;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.data;
+
+import grakn.verification.tools.integrity.IntegrityException;
+import grakn.verification.tools.integrity.Type;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a SamplingValidator run: an overall estimate per check, the per-type strata it was built from,
+ * and a bounded number of the concrete violations that were sampled
+ */
+public class SamplingReport {
+
+    private final double confidence;
+    private final Map<SamplingValidator.Check, ViolationEstimate> estimates;
+    private final Map<SamplingValidator.Check, Map<Type, ViolationEstimate>> strata;
+    private final List<IntegrityException> examples;
+    private final long elapsedMillis;
+
+    SamplingReport(double confidence,
+                   Map<SamplingValidator.Check, ViolationEstimate> estimates,
+                   Map<SamplingValidator.Check, Map<Type, ViolationEstimate>> strata,
+                   List<IntegrityException> examples,
+                   long elapsedMillis) {
+        this.confidence = confidence;
+        this.estimates = estimates;
+        this.strata = strata;
+        this.examples = examples;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double confidence() { return confidence; }
+    public Map<SamplingValidator.Check, ViolationEstimate> estimates() { return estimates; }
+    public ViolationEstimate estimate(SamplingValidator.Check check) { return estimates.get(check); }
+    public Map<SamplingValidator.Check, Map<Type, ViolationEstimate>> strata() { return strata; }
+    public List<IntegrityException> examples() { return examples; }
+    public long elapsedMillis() { return elapsedMillis; }
+
+    /**
+     * True if the sample is consistent with the data having no violations at all, ie. nothing was sampled in violation
+     */
+    public boolean noViolationsSampled() {
+        return estimates.values().stream().allMatch(estimate -> estimate.violations() == 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Sampling report (%.1f%% confidence, %d ms)%n", confidence * 100, elapsedMillis));
+        for (Map.Entry<SamplingValidator.Check, ViolationEstimate> entry : estimates.entrySet()) {
+            builder.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append(System.lineSeparator());
+        }
+        for (IntegrityException example : examples) {
+            builder.append("  e.g. ").append(example.getMessage()).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,320 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.data;
+
+import grakn.client.GraknClient;
+import grakn.client.answer.ConceptMap;
+import grakn.client.answer.Numeric;
+import grakn.common.util.Pair;
+import grakn.verification.tools.integrity.IntegrityException;
+import grakn.verification.tools.integrity.Type;
+import grakn.verification.tools.integrity.ValidatedSchema;
+import grakn.verification.tools.integrity.schema.TypeClassification;
+import graql.lang.Graql;
+import graql.lang.query.GraqlGet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Estimate how much of the data in a keyspace violates the schema, without visiting all of it.
+ *
+ * Each check samples instances per concrete type (the strata), checks each sampled instance against the
+ * schema-level Has/Plays/Relates sets of a ValidatedSchema, and reports the violation rate per stratum and
+ * combined over all strata, with confidence intervals.
+ */
+public class SamplingValidator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SamplingValidator.class);
+    private static final int MAX_EXAMPLES = 100;
+
+    public enum Check {
+        INSTANCE_OWNERSHIPS,    // every attribute owned by a sampled entity/relation/attribute is allowed by `has`
+        RELATION_ROLE_PLAYERS,  // every role player of a sampled relation is in a role both related and played
+        ATTRIBUTE_OWNERS        // every owner of a sampled attribute is allowed to own it by `has`
+    }
+
+    public enum Allocation {
+        UNIFORM,    // sample size per type proportional to its instance count, ie. a uniform sample over all instances
+        STRATIFIED  // equal sample size per type, so rare types are estimated as well as common ones
+    }
+
+    private final GraknClient.Session session;
+    private final ValidatedSchema schema;
+    private final Random random;
+    private final double confidence;
+    private final double z;
+
+    public SamplingValidator(GraknClient.Session session, ValidatedSchema schema, long seed, double confidence) {
+        this.session = session;
+        this.schema = schema;
+        this.random = new Random(seed);
+        this.confidence = confidence;
+        this.z = ViolationEstimate.zScore(confidence);
+    }
+
+    public SamplingReport sample(int sampleSizePerCheck, Allocation allocation) {
+        long start = System.currentTimeMillis();
+        Map<Check, ViolationEstimate> estimates = new EnumMap<>(Check.class);
+        Map<Check, Map<Type, ViolationEstimate>> strata = new EnumMap<>(Check.class);
+        List<IntegrityException> examples = new ArrayList<>();
+
+        for (Check check : Check.values()) {
+            LOG.info("Sampling " + check + " ...");
+            Map<Type, Long> populations = populations(strata(check));
+            Map<Type, Integer> sampleSizes = allocate(populations, sampleSizePerCheck, allocation);
+
+            Map<Type, ViolationEstimate> checkStrata = new LinkedHashMap<>();
+            for (Map.Entry<Type, Long> stratum : populations.entrySet()) {
+                Type type = stratum.getKey();
+                long population = stratum.getValue();
+                int sampleSize = sampleSizes.getOrDefault(type, 0);
+                checkStrata.put(type, sampleStratum(check, type, population, sampleSize, examples));
+            }
+            strata.put(check, checkStrata);
+            estimates.put(check, ViolationEstimate.stratified(checkStrata.values(), z));
+            LOG.info("..." + check + ": " + estimates.get(check));
+        }
+
+        return new SamplingReport(confidence, estimates, strata, examples, System.currentTimeMillis() - start);
+    }
+
+    private List<Type> strata(Check check) {
+        TypeClassification classification = schema.classification();
+        List<Type> types = new ArrayList<>();
+        switch (check) {
+            case INSTANCE_OWNERSHIPS:
+                classification.entities().forEach(types::add);
+                classification.relations().forEach(types::add);
+                classification.attributes().forEach(types::add);
+                break;
+            case RELATION_ROLE_PLAYERS:
+                classification.relations().forEach(types::add);
+                break;
+            case ATTRIBUTE_OWNERS:
+                classification.attributes().forEach(types::add);
+                break;
+            default:
+                throw new IllegalArgumentException("Unrecognised check: " + check);
+        }
+        types.removeIf(type -> classification.isMeta(type) || classification.isAbstract(type));
+        // fix the iteration order so a given seed always draws the same sample
+        types.sort((first, second) -> first.label().compareTo(second.label()));
+        return types;
+    }
+
+    private Map<Type, Long> populations(List<Type> types) {
+        Map<Type, Long> populations = new LinkedHashMap<>();
+        try (GraknClient.Transaction tx = session.transaction().read()) {
+            for (Type type : types) {
+                GraqlGet.Aggregate count = Graql.parse(String.format("match $x isa! %s; get $x;", type)).asGet().count();
+                List<Numeric> answer = tx.execute(count);
+                populations.put(type, answer.get(0).number().longValue());
+            }
+        }
+        return populations;
+    }
+
+    /**
+     * Split a sample size across strata, never allocating more to a stratum than its population
+     */
+    public static Map<Type, Integer> allocate(Map<Type, Long> populations, int sampleSize, Allocation allocation) {
+        Map<Type, Integer> sizes = new HashMap<>();
+        long total = populations.values().stream().mapToLong(Long::longValue).sum();
+        if (total == 0 || sampleSize <= 0) {
+            return sizes;
+        }
+        if (sampleSize >= total) {
+            populations.forEach((type, population) -> sizes.put(type, (int) (long) population));
+            return sizes;
+        }
+
+        if (allocation == Allocation.UNIFORM) {
+            // largest remainder method
+            List<Pair<Type, Double>> remainders = new ArrayList<>();
+            int allocated = 0;
+            for (Map.Entry<Type, Long> entry : populations.entrySet()) {
+                double exact = (double) sampleSize * entry.getValue() / total;
+                int size = (int) Math.floor(exact);
+                sizes.put(entry.getKey(), size);
+                allocated += size;
+                remainders.add(new Pair<>(entry.getKey(), exact - size));
+            }
+            remainders.sort((first, second) -> Double.compare(second.second(), first.second()));
+            for (int i = 0; allocated < sampleSize && i < remainders.size(); i++) {
+                Type type = remainders.get(i).first();
+                if (sizes.get(type) < populations.get(type)) {
+                    sizes.put(type, sizes.get(type) + 1);
+                    allocated++;
+                }
+            }
+        } else {
+            // hand out equal shares, re-dividing whatever exhausted strata could not take
+            populations.keySet().forEach(type -> sizes.put(type, 0));
+            int remaining = sampleSize;
+            while (remaining > 0) {
+                List<Type> open = new ArrayList<>();
+                for (Map.Entry<Type, Long> entry : populations.entrySet()) {
+                    if (sizes.get(entry.getKey()) < entry.getValue()) open.add(entry.getKey());
+                }
+                int share = Math.max(1, remaining / open.size());
+                for (Type type : open) {
+                    if (remaining == 0) break;
+                    int size = (int) Math.min(populations.get(type), sizes.get(type) + (long) Math.min(share, remaining));
+                    remaining -= size - sizes.get(type);
+                    sizes.put(type, size);
+                }
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Floyd's algorithm: `count` distinct offsets drawn uniformly from [0, population) in O(count)
+     */
+    public static List<Long> distinctOffsets(long population, int count, Random random) {
+        Set<Long> chosen = new HashSet<>();
+        for (long j = population - count; j < population; j++) {
+            long candidate = (long) (random.nextDouble() * (j + 1));
+            if (!chosen.add(candidate)) {
+                chosen.add(j);
+            }
+        }
+        List<Long> offsets = new ArrayList<>(chosen);
+        Collections.sort(offsets);
+        return offsets;
+    }
+
+    private ViolationEstimate sampleStratum(Check check, Type type, long population, int sampleSize, List<IntegrityException> examples) {
+        if (sampleSize == 0) return ViolationEstimate.wilson(population, 0, 0, z);
+        long violations = 0;
+        try (GraknClient.Transaction tx = session.transaction().read()) {
+            List<String> ids = sampleIds(tx, type, distinctOffsets(population, sampleSize, random));
+            for (String id : ids) {
+                IntegrityException violation = check(tx, check, type, id);
+                if (violation != null) {
+                    violations++;
+                    if (examples.size() < MAX_EXAMPLES) examples.add(violation);
+                }
+            }
+            return ViolationEstimate.wilson(population, ids.size(), violations, z);
+        }
+    }
+
+    /**
+     * Fetch the instances at the given sorted positions with one offset/limit query per run of consecutive positions,
+     * so the server skips the instances in between instead of sending them. All queries run in one transaction, so
+     * the positions index a single enumeration and the sample is uniform whatever order the server returns.
+     */
+    private static List<String> sampleIds(GraknClient.Transaction tx, Type type, List<Long> offsets) {
+        List<String> ids = new ArrayList<>(offsets.size());
+        for (long[] run : runs(offsets)) {
+            GraqlGet query = Graql.parse(String.format("match $x isa! %s; get $x; offset %d; limit %d;", type, run[0], run[1])).asGet();
+            List<ConceptMap> answers = tx.execute(query);
+            answers.forEach(answer -> ids.add(answer.get("x").id().getValue()));
+            if (answers.size() < run[1]) break; // the data shrank after counting
+        }
+        return ids;
+    }
+
+    /**
+     * @return sorted offsets grouped into runs of consecutive positions, each as {first offset, length}
+     */
+    public static List<long[]> runs(List<Long> offsets) {
+        List<long[]> runs = new ArrayList<>();
+        long[] run = null;
+        for (long offset : offsets) {
+            if (run != null && run[0] + run[1] == offset) {
+                run[1]++;
+            } else {
+                run = new long[]{offset, 1};
+                runs.add(run);
+            }
+        }
+        return runs;
+    }
+
+    private IntegrityException check(GraknClient.Transaction tx, Check check, Type type, String id) {
+        switch (check) {
+            case INSTANCE_OWNERSHIPS:
+                return checkOwnerships(tx, type, id);
+            case RELATION_ROLE_PLAYERS:
+                return checkRolePlayers(tx, type, id);
+            case ATTRIBUTE_OWNERS:
+                return checkOwners(tx, type, id);
+            default:
+                throw new IllegalArgumentException("Unrecognised check: " + check);
+        }
+    }
+
+    private IntegrityException checkOwnerships(GraknClient.Transaction tx, Type owner, String id) {
+        GraqlGet query = Graql.parse(String.format("match $x id %s; $x has attribute $a; $a isa! $t; get $t;", id)).asGet();
+        for (ConceptMap answer : tx.execute(query)) {
+            Type attribute = new Type(answer.get("t").asSchemaConcept());
+            if (!schema.has().contains(new Pair<>(owner, attribute))) {
+                return IntegrityException.instanceOwnsAttributeNotInHas(id, owner, attribute);
+            }
+        }
+        return null;
+    }
+
+    private IntegrityException checkOwners(GraknClient.Transaction tx, Type attribute, String id) {
+        GraqlGet query = Graql.parse(String.format("match $a id %s; $x has %s $a; $x isa! $t; get $x, $t;", id, attribute)).asGet();
+        for (ConceptMap answer : tx.execute(query)) {
+            Type owner = new Type(answer.get("t").asSchemaConcept());
+            if (!schema.has().contains(new Pair<>(owner, attribute))) {
+                return IntegrityException.instanceOwnsAttributeNotInHas(answer.get("x").id().getValue(), owner, attribute);
+            }
+        }
+        return null;
+    }
+
+    private IntegrityException checkRolePlayers(GraknClient.Transaction tx, Type relation, String id) {
+        GraqlGet query = Graql.parse(String.format("match $r id %s; $r ($role: $p); $p isa! $t; get $role, $p, $t;", id)).asGet();
+
+        // a player matches every role it plays in and all of their super roles, one of which must be allowed
+        Map<String, Type> playerTypes = new HashMap<>();
+        Map<String, Set<Type>> playerRoles = new HashMap<>();
+        for (ConceptMap answer : tx.execute(query)) {
+            String player = answer.get("p").id().getValue();
+            playerTypes.put(player, new Type(answer.get("t").asSchemaConcept()));
+            playerRoles.computeIfAbsent(player, p -> new HashSet<>()).add(new Type(answer.get("role").asSchemaConcept()));
+        }
+
+        for (Map.Entry<String, Set<Type>> entry : playerRoles.entrySet()) {
+            Type player = playerTypes.get(entry.getKey());
+            boolean allowed = entry.getValue().stream().anyMatch(role ->
+                    schema.relates().contains(new Pair<>(relation, role)) && schema.plays().contains(new Pair<>(player, role)));
+            if (!allowed) {
+                return IntegrityException.rolePlayerNotAllowed(id, relation, entry.getKey(), player);
+            }
+        }
+        return null;
+    }
+}
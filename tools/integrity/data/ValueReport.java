@@ -0,0 +1,48 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.data;
+
+/**
+ * Totals and throughput of a ValueValidator run
+ */
+public class ValueReport {
+
+    private final long values;
+    private final long violations;
+    private final long elapsedMillis;
+
+    ValueReport(long values, long violations, long elapsedMillis) {
+        this.values = values;
+        this.violations = violations;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long values() { return values; }
+    public long violations() { return violations; }
+    public long elapsedMillis() { return elapsedMillis; }
+
+    public double valuesPerSecond() {
+        return elapsedMillis == 0 ? values * 1000.0 : values * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d values, %d violations in %d ms (%.0f values/s)", values, violations, elapsedMillis, valuesPerSecond());
+    }
+}
@@ -0,0 +1,232 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.data;
+
+import grakn.client.GraknClient;
+import grakn.client.answer.ConceptMap;
+import grakn.client.concept.AttributeType;
+import grakn.client.concept.Label;
+import grakn.verification.tools.integrity.IntegrityException;
+import grakn.verification.tools.integrity.Type;
+import grakn.verification.tools.integrity.ValidatedSchema;
+import grakn.verification.tools.integrity.schema.TypeClassification;
+import graql.lang.Graql;
+import graql.lang.query.GraqlGet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Validate the `val` function on attribute data: every attribute value has its type's value type,
+ * and matches its type's regex if there is one.
+ *
+ * Each type's values are streamed from the keyspace in one transaction on the calling thread, cut into batches,
+ * and checked on a worker pool, with a bounded number of batches in flight. Each regex is compiled once per type.
+ */
+public class ValueValidator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ValueValidator.class);
+
+    public enum ValueType {
+        STRING("string", String.class),
+        LONG("long", Long.class),
+        DOUBLE("double", Double.class),
+        BOOLEAN("boolean", Boolean.class),
+        DATE("date", LocalDateTime.class);
+
+        private final String graql;
+        private final Class<?> valueClass;
+
+        ValueType(String graql, Class<?> valueClass) {
+            this.graql = graql;
+            this.valueClass = valueClass;
+        }
+
+        public boolean accepts(Object value) {
+            return valueClass.isInstance(value);
+        }
+
+        /**
+         * @return the value type holding values of the given class, or null if there is none
+         */
+        static ValueType of(Class<?> valueClass) {
+            for (ValueType valueType : values()) {
+                if (valueType.valueClass.equals(valueClass)) return valueType;
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return graql;
+        }
+    }
+
+    private static class Value {
+        final String id;
+        final Object value;
+
+        Value(String id, Object value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    private static class AttributeSchema {
+        final ValueType valueType;
+        final Pattern pattern;
+
+        AttributeSchema(ValueType valueType, Pattern pattern) {
+            this.valueType = valueType;
+            this.pattern = pattern;
+        }
+    }
+
+    private final GraknClient.Session session;
+    private final ValidatedSchema schema;
+    private final int batchSize;
+    private final int parallelism;
+    private final Map<Type, AttributeSchema> attributeSchemas;
+
+    public ValueValidator(GraknClient.Session session, ValidatedSchema schema, int batchSize, int parallelism) {
+        this.session = session;
+        this.schema = schema;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.attributeSchemas = new ConcurrentHashMap<>();
+    }
+
+    public ValueReport validate(Consumer<IntegrityException> violations) {
+        long start = System.currentTimeMillis();
+        long values = 0;
+        long found = 0;
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        // at most two batches per worker in flight, so reading cannot run away from checking
+        Deque<Future<List<IntegrityException>>> inFlight = new ArrayDeque<>();
+        try {
+            TypeClassification classification = schema.classification();
+            for (Type type : classification.attributes()) {
+                if (classification.isMeta(type) || classification.isAbstract(type)) continue;
+                LOG.info("Validating values of " + type + " ...");
+
+                try (GraknClient.Transaction tx = session.transaction().read()) {
+                    AttributeSchema attributeSchema = attributeSchema(tx, type);
+                    ValueType valueType = attributeSchema.valueType;
+                    Pattern pattern = attributeSchema.pattern;
+                    if (valueType == null) {
+                        violations.accept(IntegrityException.attributeTypeHasNoValueType(type));
+                        found++;
+                        continue;
+                    }
+
+                    GraqlGet query = Graql.parse(String.format("match $a isa! %s; get $a;", type)).asGet();
+                    Iterator<ConceptMap> answers = tx.stream(query).iterator();
+                    while (answers.hasNext()) {
+                        List<Value> batch = new ArrayList<>(batchSize);
+                        while (batch.size() < batchSize && answers.hasNext()) {
+                            ConceptMap answer = answers.next();
+                            batch.add(new Value(answer.get("a").id().getValue(), answer.get("a").asAttribute().value()));
+                        }
+                        values += batch.size();
+
+                        while (inFlight.size() >= 2 * parallelism) {
+                            found += report(inFlight.removeFirst(), violations);
+                        }
+                        inFlight.addLast(workers.submit(() -> check(type, valueType, pattern, batch)));
+                    }
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                found += report(inFlight.removeFirst(), violations);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        ValueReport report = new ValueReport(values, found, System.currentTimeMillis() - start);
+        LOG.info("...validated attribute values: " + report);
+        return report;
+    }
+
+    private static long report(Future<List<IntegrityException>> batch, Consumer<IntegrityException> violations) {
+        try {
+            List<IntegrityException> found = batch.get();
+            found.forEach(violations);
+            return found.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static List<IntegrityException> check(Type type, ValueType valueType, Pattern pattern, List<Value> batch) {
+        List<IntegrityException> violations = new ArrayList<>();
+        for (Value value : batch) {
+            IntegrityException violation = check(type, valueType, pattern, value.id, value.value);
+            if (violation != null) violations.add(violation);
+        }
+        return violations;
+    }
+
+    /**
+     * @return the violation for a single attribute value, or null if it is valid
+     */
+    public static IntegrityException check(Type type, ValueType valueType, Pattern pattern, String id, Object value) {
+        if (!valueType.accepts(value)) {
+            return IntegrityException.attributeValueHasWrongType(id, type, value, valueType.toString());
+        }
+        // Graql regexes constrain the whole value, like Matcher.matches()
+        if (pattern != null && value instanceof String && !pattern.matcher((String) value).matches()) {
+            return IntegrityException.attributeValueDoesNotMatchRegex(id, type, value, pattern.pattern());
+        }
+        return null;
+    }
+
+    /**
+     * Value type and compiled regex of an attribute type, read with one schema concept lookup and cached per type
+     */
+    private AttributeSchema attributeSchema(GraknClient.Transaction tx, Type type) {
+        AttributeSchema cached = attributeSchemas.get(type);
+        if (cached != null) return cached;
+        AttributeType.Remote<?> attributeType = tx.getSchemaConcept(Label.of(type.label())).asAttributeType();
+        AttributeType.ValueType<?> valueType = attributeType.valueType();
+        String regex = attributeType.regex();
+        AttributeSchema attributeSchema = new AttributeSchema(
+                valueType == null ? null : ValueType.of(valueType.valueClass()),
+                regex == null || regex.isEmpty() ? null : Pattern.compile(regex));
+        attributeSchemas.putIfAbsent(type, attributeSchema);
+        return attributeSchema;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.data;
+
+import java.util.Collection;
+
+/**
+ * Estimated violation rate over a population of instances, from a simple random sample of it
+ * (or of each of its strata), with a two-sided confidence interval
+ */
+public class ViolationEstimate {
+
+    private final long population;
+    private final long sampled;
+    private final long violations;
+    private final double rate;
+    private final double lower;
+    private final double upper;
+
+    private ViolationEstimate(long population, long sampled, long violations, double rate, double lower, double upper) {
+        this.population = population;
+        this.sampled = sampled;
+        this.violations = violations;
+        this.rate = rate;
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * Wilson score interval, which stays inside [0, 1] and is well behaved when no violations are seen
+     */
+    public static ViolationEstimate wilson(long population, long sampled, long violations, double z) {
+        if (sampled == 0) {
+            return new ViolationEstimate(population, 0, 0, 0.0, 0.0, population == 0 ? 0.0 : 1.0);
+        }
+        double n = sampled;
+        double p = violations / n;
+        double z2 = z * z;
+        double centre = (p + z2 / (2 * n)) / (1 + z2 / n);
+        double halfWidth = z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / (1 + z2 / n);
+        return new ViolationEstimate(population, sampled, violations, p,
+                Math.max(0.0, centre - halfWidth), Math.min(1.0, centre + halfWidth));
+    }
+
+    /**
+     * Combine per-stratum estimates, weighting each stratum by its share of the population and
+     * applying the finite population correction to each stratum's variance.
+     * When every sampled stratum is free of (or full of) violations the normal approximation collapses
+     * to a zero-width interval, so we fall back to a Wilson interval over the pooled sample.
+     * Strata that drew no sample say nothing about their share of the population: the rate is weighted over
+     * the sampled strata only, and the interval is widened to allow any rate at all in the unsampled share.
+     */
+    public static ViolationEstimate stratified(Collection<ViolationEstimate> strata, double z) {
+        long population = 0;
+        long sampledPopulation = 0;
+        long sampled = 0;
+        long violations = 0;
+        for (ViolationEstimate stratum : strata) {
+            population += stratum.population;
+            if (stratum.sampled > 0) sampledPopulation += stratum.population;
+            sampled += stratum.sampled;
+            violations += stratum.violations;
+        }
+        if (population == 0 || sampled == 0) {
+            return wilson(population, sampled, violations, z);
+        }
+
+        double rate = 0.0;
+        double variance = 0.0;
+        for (ViolationEstimate stratum : strata) {
+            if (stratum.sampled == 0) continue;
+            double weight = (double) stratum.population / sampledPopulation;
+            double p = stratum.rate;
+            rate += weight * p;
+            if (stratum.sampled > 1) {
+                double fpc = 1.0 - (double) stratum.sampled / stratum.population;
+                variance += weight * weight * fpc * p * (1 - p) / (stratum.sampled - 1);
+            }
+        }
+
+        double lower;
+        double upper;
+        if (variance == 0.0) {
+            ViolationEstimate pooled = wilson(sampledPopulation, sampled, violations, z);
+            lower = pooled.lower;
+            upper = pooled.upper;
+        } else {
+            double halfWidth = z * Math.sqrt(variance);
+            lower = Math.max(0.0, rate - halfWidth);
+            upper = Math.min(1.0, rate + halfWidth);
+        }
+        double sampledShare = (double) sampledPopulation / population;
+        return new ViolationEstimate(population, sampled, violations, rate,
+                lower * sampledShare, upper * sampledShare + (1.0 - sampledShare));
+    }
+
+    /**
+     * Two-sided standard normal quantile for a confidence level, eg. 0.95 -> 1.96
+     */
+    public static double zScore(double confidence) {
+        if (confidence <= 0.0 || confidence >= 1.0) {
+            throw new IllegalArgumentException("Confidence must be strictly between 0 and 1, got " + confidence);
+        }
+        return inverseNormal(1.0 - (1.0 - confidence) / 2.0);
+    }
+
+    /**
+     * Acklam's rational approximation of the standard normal quantile function, relative error below 1.2e-9
+     */
+    private static double inverseNormal(double p) {
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        } else if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        } else {
+            double q = p - 0.5;
+            double r = q * q;
+            return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                    / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+        }
+    }
+
+    public long population() { return population; }
+    public long sampled() { return sampled; }
+    public long violations() { return violations; }
+    public double rate() { return rate; }
+    public double lower() { return lower; }
+    public double upper() { return upper; }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d violations (population %d), rate %.4f in [%.4f, %.4f]",
+                violations, sampled, population, rate, lower, upper);
+    }
+}
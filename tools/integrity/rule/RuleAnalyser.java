@@ -0,0 +1,105 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.rule;
+
+import grakn.client.GraknClient;
+import grakn.client.answer.ConceptMap;
+import grakn.client.concept.Rule;
+import grakn.common.util.Pair;
+import grakn.verification.tools.integrity.IntegrityException;
+import grakn.verification.tools.integrity.Type;
+import grakn.verification.tools.integrity.ValidatedSchema;
+import graql.lang.Graql;
+import graql.lang.query.GraqlGet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Analyse the rules of a keyspace: build the rule dependency graph, find its recursive components,
+ * report components that recurse through a negation, and estimate how deep each one recurses.
+ */
+public class RuleAnalyser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RuleAnalyser.class);
+    private static final String META_RULE = "rule";
+
+    private final GraknClient.Session session;
+    private final ValidatedSchema schema;
+
+    public RuleAnalyser(GraknClient.Session session, ValidatedSchema schema) {
+        this.session = session;
+        this.schema = schema;
+    }
+
+    public List<RuleComponent> analyse(Consumer<IntegrityException> violations) {
+        LOG.info("Retrieving rules ...");
+        List<RuleSignature> rules = new ArrayList<>();
+        try (GraknClient.Transaction tx = session.transaction().read()) {
+            GraqlGet query = Graql.parse("match $r sub rule; get;").asGet();
+            for (ConceptMap answer : tx.execute(query)) {
+                Rule rule = answer.get("r").asRule();
+                String label = rule.label().toString();
+                if (label.equals(META_RULE)) continue;
+                rules.add(RuleSignature.of(label, rule.when(), rule.then()));
+            }
+        }
+
+        LOG.info("...analysing dependencies of " + rules.size() + " rules");
+        RuleGraph graph = new RuleGraph(rules, supertypes());
+        List<RuleComponent> components = graph.components();
+        for (RuleComponent component : components) {
+            if (!component.isStratifiable()) {
+                violations.accept(IntegrityException.ruleCycleThroughNegation(component.rules()));
+            }
+            if (component.isRecursive()) {
+                LOG.info("...recursive rules " + component);
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Every type and role label mapped to itself and its supertypes, so a rule concluding a subtype
+     * is seen to feed rules that match on any of its supertypes
+     */
+    private Map<String, Set<String>> supertypes() {
+        Map<String, Set<String>> supertypes = new HashMap<>();
+        for (Type type : schema.types()) {
+            supertypes.computeIfAbsent(type.label(), label -> new HashSet<>()).add(type.label());
+        }
+        for (Pair<Type, Type> sub : schema.transitiveSub()) {
+            supertypes.computeIfAbsent(sub.first().label(), label -> new HashSet<>()).add(sub.second().label());
+        }
+        for (Type role : schema.roles()) {
+            Set<String> labels = supertypes.computeIfAbsent(role.label(), label -> new HashSet<>());
+            for (Type ancestor = role; ancestor != null; ancestor = schema.roleHierarchy().parent(ancestor)) {
+                labels.add(ancestor.label());
+            }
+        }
+        return supertypes;
+    }
+}
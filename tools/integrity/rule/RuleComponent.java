@@ -0,0 +1,59 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.rule;
+
+import java.util.List;
+
+/**
+ * A strongly connected component of the rule dependency graph.
+ *
+ * The stratum is the length of the longest chain of components this one depends on, ie. the round of
+ * bottom-up evaluation in which it can first be completed. For a recursive component the number of fixpoint
+ * iterations depends on the data; the depth estimate is the component's diameter plus one, the number of rounds
+ * one derivation needs to pass through every rule of the cycle once.
+ */
+public class RuleComponent {
+
+    private final List<String> rules;
+    private final boolean recursive;
+    private final boolean stratifiable;
+    private final int stratum;
+    private final int depthEstimate;
+
+    RuleComponent(List<String> rules, boolean recursive, boolean stratifiable, int stratum, int depthEstimate) {
+        this.rules = rules;
+        this.recursive = recursive;
+        this.stratifiable = stratifiable;
+        this.stratum = stratum;
+        this.depthEstimate = depthEstimate;
+    }
+
+    public List<String> rules() { return rules; }
+    public boolean isRecursive() { return recursive; }
+    public boolean isStratifiable() { return stratifiable; }
+    public int stratum() { return stratum; }
+    public int depthEstimate() { return depthEstimate; }
+
+    @Override
+    public String toString() {
+        return String.format("%s (stratum %d%s%s)", rules, stratum,
+                recursive ? ", recursive with depth ~" + depthEstimate : "",
+                stratifiable ? "" : ", NOT stratifiable");
+    }
+}
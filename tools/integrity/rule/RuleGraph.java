@@ -0,0 +1,221 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.rule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependency graph between rules: rule r depends on rule s if r's `when` uses a type that s's `then` can conclude,
+ * either directly or through a subtype of it. The dependency is negative if the type is used under a negation.
+ *
+ * Rules are indexed densely and edges kept in adjacency arrays, so the component analysis runs in O(V + E).
+ */
+public class RuleGraph {
+
+    private final List<RuleSignature> rules;
+    private final int[][] edges;
+    private final boolean[][] negative;
+
+    /**
+     * @param supertypes every type label mapped to itself and all of its supertypes;
+     *                   labels missing from the map are treated as having no supertypes
+     */
+    public RuleGraph(List<RuleSignature> rules, Map<String, Set<String>> supertypes) {
+        this.rules = rules;
+        int size = rules.size();
+
+        // type label -> rules that can conclude an instance of it
+        Map<String, List<Integer>> producers = new HashMap<>();
+        for (int s = 0; s < size; s++) {
+            for (String conclusion : rules.get(s).conclusions()) {
+                for (String type : supertypes.getOrDefault(conclusion, Collections.singleton(conclusion))) {
+                    List<Integer> producing = producers.computeIfAbsent(type, t -> new ArrayList<>());
+                    if (producing.isEmpty() || producing.get(producing.size() - 1) != s) producing.add(s);
+                }
+            }
+        }
+
+        edges = new int[size][];
+        negative = new boolean[size][];
+        for (int r = 0; r < size; r++) {
+            // dependency -> negated?, negative wins if a rule is used both ways
+            Map<Integer, Boolean> dependencies = new HashMap<>();
+            for (String type : rules.get(r).positive()) {
+                for (int s : producers.getOrDefault(type, Collections.emptyList())) dependencies.putIfAbsent(s, false);
+            }
+            for (String type : rules.get(r).negative()) {
+                for (int s : producers.getOrDefault(type, Collections.emptyList())) dependencies.put(s, true);
+            }
+            edges[r] = new int[dependencies.size()];
+            negative[r] = new boolean[dependencies.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Boolean> dependency : dependencies.entrySet()) {
+                edges[r][i] = dependency.getKey();
+                negative[r][i] = dependency.getValue();
+                i++;
+            }
+        }
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * Components in dependency order: every component appears after all components it depends on
+     */
+    public List<RuleComponent> components() {
+        int size = rules.size();
+        int[] component = new int[size];
+        List<int[]> members = tarjan(component);
+
+        List<RuleComponent> components = new ArrayList<>(members.size());
+        int[] stratum = new int[members.size()];
+        for (int c = 0; c < members.size(); c++) {
+            int[] rulesInComponent = members.get(c);
+            boolean recursive = rulesInComponent.length > 1;
+            boolean stratifiable = true;
+            for (int r : rulesInComponent) {
+                for (int i = 0; i < edges[r].length; i++) {
+                    int s = edges[r][i];
+                    if (component[s] == c) {
+                        recursive = true;
+                        if (negative[r][i]) stratifiable = false;
+                    } else {
+                        // Tarjan emits a component after everything it can reach, so this stratum is already final
+                        stratum[c] = Math.max(stratum[c], stratum[component[s]] + 1);
+                    }
+                }
+            }
+
+            List<String> labels = new ArrayList<>(rulesInComponent.length);
+            for (int r : rulesInComponent) labels.add(rules.get(r).label());
+            Collections.sort(labels);
+            int depth = recursive ? diameter(rulesInComponent, component, c) + 1 : 1;
+            components.add(new RuleComponent(labels, recursive, stratifiable, stratum[c], depth));
+        }
+        return components;
+    }
+
+    /**
+     * Iterative Tarjan, so deep rule chains cannot overflow the stack.
+     * Fills in the component index of every rule and returns the members of each component in emission order.
+     */
+    private List<int[]> tarjan(int[] component) {
+        int size = rules.size();
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        int[] edgeCursor = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+
+        Deque<Integer> stack = new ArrayDeque<>();
+        Deque<Integer> callStack = new ArrayDeque<>();
+        List<int[]> components = new ArrayList<>();
+        int nextIndex = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (index[root] != -1) continue;
+            callStack.push(root);
+            index[root] = lowLink[root] = nextIndex++;
+            stack.push(root);
+            onStack[root] = true;
+
+            while (!callStack.isEmpty()) {
+                int r = callStack.peek();
+                if (edgeCursor[r] < edges[r].length) {
+                    int s = edges[r][edgeCursor[r]++];
+                    if (index[s] == -1) {
+                        index[s] = lowLink[s] = nextIndex++;
+                        stack.push(s);
+                        onStack[s] = true;
+                        callStack.push(s);
+                    } else if (onStack[s]) {
+                        lowLink[r] = Math.min(lowLink[r], index[s]);
+                    }
+                } else {
+                    callStack.pop();
+                    if (!callStack.isEmpty()) {
+                        int caller = callStack.peek();
+                        lowLink[caller] = Math.min(lowLink[caller], lowLink[r]);
+                    }
+                    if (lowLink[r] == index[r]) {
+                        List<Integer> members = new ArrayList<>();
+                        int member;
+                        do {
+                            member = stack.pop();
+                            onStack[member] = false;
+                            component[member] = components.size();
+                            members.add(member);
+                        } while (member != r);
+                        components.add(members.stream().mapToInt(Integer::intValue).toArray());
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Longest shortest path between two rules of a component, following only edges inside it
+     */
+    private int diameter(int[] members, int[] component, int c) {
+        int diameter = 0;
+        Map<Integer, Integer> distance = new HashMap<>();
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int source : members) {
+            distance.clear();
+            distance.put(source, 0);
+            queue.add(source);
+            while (!queue.isEmpty()) {
+                int r = queue.poll();
+                int d = distance.get(r);
+                diameter = Math.max(diameter, d);
+                for (int s : edges[r]) {
+                    if (component[s] == c && !distance.containsKey(s)) {
+                        distance.put(s, d + 1);
+                        queue.add(s);
+                    }
+                }
+            }
+        }
+        return diameter;
+    }
+
+    /**
+     * Rules that can conclude some type used by the given rule
+     */
+    public Set<String> dependencies(String rule) {
+        Set<String> dependencies = new HashSet<>();
+        for (int r = 0; r < rules.size(); r++) {
+            if (!rules.get(r).label().equals(rule)) continue;
+            for (int s : edges[r]) dependencies.add(rules.get(s).label());
+        }
+        return dependencies;
+    }
+}
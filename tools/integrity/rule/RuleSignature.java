@@ -0,0 +1,88 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.rule;
+
+import graql.lang.pattern.Pattern;
+import graql.lang.property.HasAttributeProperty;
+import graql.lang.property.IsaProperty;
+import graql.lang.property.RelationProperty;
+import graql.lang.statement.Statement;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The type labels a rule reads in its `when` (split into those used positively and those under a negation)
+ * and the type labels it can conclude in its `then`. This is all the rule graph needs to know about a rule.
+ */
+public class RuleSignature {
+
+    private final String label;
+    private final Set<String> positive;
+    private final Set<String> negative;
+    private final Set<String> conclusions;
+
+    public RuleSignature(String label, Set<String> positive, Set<String> negative, Set<String> conclusions) {
+        this.label = label;
+        this.positive = positive;
+        this.negative = negative;
+        this.conclusions = conclusions;
+    }
+
+    public static RuleSignature of(String label, Pattern when, Pattern then) {
+        Set<String> positive = new HashSet<>();
+        Set<String> negative = new HashSet<>();
+        Set<String> conclusions = new HashSet<>();
+        collect(when, false, positive, negative);
+        collect(then, false, conclusions, conclusions);
+        return new RuleSignature(label, positive, negative, conclusions);
+    }
+
+    private static void collect(Pattern pattern, boolean negated, Set<String> positive, Set<String> negative) {
+        if (pattern.isNegation()) {
+            collect(pattern.asNegation().getPattern(), !negated, positive, negative);
+        } else if (pattern.isConjunction()) {
+            for (Pattern inner : pattern.asConjunction().getPatterns()) collect(inner, negated, positive, negative);
+        } else if (pattern.isDisjunction()) {
+            for (Pattern inner : pattern.asDisjunction().getPatterns()) collect(inner, negated, positive, negative);
+        } else if (pattern.isStatement()) {
+            labels(pattern.asStatement(), negated ? negative : positive);
+        }
+    }
+
+    private static void labels(Statement statement, Set<String> labels) {
+        statement.getProperties(IsaProperty.class).forEach(isa -> isa.type().getType().ifPresent(labels::add));
+        statement.getProperties(HasAttributeProperty.class).forEach(has -> {
+            labels.add(has.type());
+            labels(has.attribute(), labels);
+        });
+        statement.getProperties(RelationProperty.class).forEach(relation ->
+                relation.relationPlayers().forEach(player -> player.getRole().flatMap(Statement::getType).ifPresent(labels::add)));
+    }
+
+    public String label() { return label; }
+    public Set<String> positive() { return positive; }
+    public Set<String> negative() { return negative; }
+    public Set<String> conclusions() { return conclusions; }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -23,22 +23,38 @@ import grakn.common.util.Pair;
 import grakn.verification.tools.integrity.IntegrityException;
 import grakn.verification.tools.integrity.RejectDuplicateSet;
 import grakn.verification.tools.integrity.Type;
-import grakn.verification.tools.integrity.Validator;
 
-import java.util.Arrays;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class Has extends RejectDuplicateSet<Pair<Type, Type>> {
 
+    private final TypeClassification classification;
+
+    public Has() {
+        this(TypeClassification.empty());
+    }
+
+    public Has(TypeClassification classification) {
+        this.classification = classification;
+    }
+
     @Override
     public void validate() {
+        validate(violation -> {
+            throw violation;
+        });
+    }
+
+    @Override
+    public void validate(Consumer<IntegrityException> violations) {
         /*
         Validate that none of the types having anything are a meta type
         */
 
         for (Pair<Type, Type> has : set) {
-            if (Arrays.stream(Validator.META_TYPES.values()).anyMatch(meta -> meta.getName().equals(has.first().label()))) {
-                throw IntegrityException.metaTypeCannotOwnAttribute(has.first(), has.second());
+            if (classification.isMeta(has.first())) {
+                violations.accept(IntegrityException.metaTypeCannotOwnAttribute(has.first(), has.second()));
             }
         }
     }
@@ -23,22 +23,38 @@ import grakn.common.util.Pair;
 import grakn.verification.tools.integrity.IntegrityException;
 import grakn.verification.tools.integrity.RejectDuplicateSet;
 import grakn.verification.tools.integrity.Type;
-import grakn.verification.tools.integrity.Validator;
 
-import java.util.Arrays;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class Plays extends RejectDuplicateSet<Pair<Type, Type>> {
 
+    private final TypeClassification classification;
+
+    public Plays() {
+        this(TypeClassification.empty());
+    }
+
+    public Plays(TypeClassification classification) {
+        this.classification = classification;
+    }
+
     @Override
     public void validate() {
+        validate(violation -> {
+            throw violation;
+        });
+    }
+
+    @Override
+    public void validate(Consumer<IntegrityException> violations) {
         /*
         Validate that none of the types playing a role are a meta type
         */
 
         for (Pair<Type, Type> plays : set) {
-            if (Arrays.stream(Validator.META_TYPES.values()).anyMatch(meta -> meta.getName().equals(plays.first().label()))) {
-                throw IntegrityException.metaTypeCannotPlayRole(plays.first(), plays.second());
+            if (classification.isMeta(plays.first())) {
+                violations.accept(IntegrityException.metaTypeCannotPlayRole(plays.first(), plays.second()));
             }
         }
     }
@@ -23,23 +23,38 @@ import grakn.common.util.Pair;
 import grakn.verification.tools.integrity.IntegrityException;
 import grakn.verification.tools.integrity.RejectDuplicateSet;
 import grakn.verification.tools.integrity.Type;
-import grakn.verification.tools.integrity.Validator;
 
-import java.util.Arrays;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class Relates extends RejectDuplicateSet<Pair<Type, Type>> {
 
+    private final TypeClassification classification;
+
+    public Relates() {
+        this(TypeClassification.empty());
+    }
+
+    public Relates(TypeClassification classification) {
+        this.classification = classification;
+    }
 
     @Override
     public void validate() {
+        validate(violation -> {
+            throw violation;
+        });
+    }
+
+    @Override
+    public void validate(Consumer<IntegrityException> violations) {
         /*
         Validate that none of the types relating a role are a meta type
          */
 
         for (Pair<Type, Type> relates : set) {
-            if (Arrays.stream(Validator.META_TYPES.values()).anyMatch(meta -> meta.getName().equals(relates.first().label()))) {
-                throw IntegrityException.metaTypeCannotRelateRole(relates.first(), relates.second());
+            if (classification.isMeta(relates.first())) {
+                violations.accept(IntegrityException.metaTypeCannotRelateRole(relates.first(), relates.second()));
             }
         }
     }
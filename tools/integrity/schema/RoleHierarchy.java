@@ -0,0 +1,180 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.schema;
+
+import grakn.common.util.Pair;
+import grakn.verification.tools.integrity.IntegrityException;
+import grakn.verification.tools.integrity.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transitive closure of the role sub relation, not including (x,x) pairs
+ *
+ * Roles are given dense indices, and the strict ancestors of each role are kept as a BitSet,
+ * so sub-role tests are single bit lookups. This lets inherited and overridden plays/relates
+ * be resolved locally, rather than asking Grakn about every (type, role) pair.
+ */
+public class RoleHierarchy {
+
+    public static final String META_ROLE = "role";
+
+    private final Map<Type, Integer> index;
+    private final Type[] roles;
+    private final int[] parent;
+    private final BitSet[] ancestors;
+
+    RoleHierarchy(Iterable<Type> roles, RoleSub roleSub) {
+        index = new HashMap<>();
+        for (Type role : roles) {
+            index.putIfAbsent(role, index.size());
+        }
+        for (Pair<Type, Type> sub : roleSub) {
+            index.putIfAbsent(sub.first(), index.size());
+            index.putIfAbsent(sub.second(), index.size());
+        }
+
+        this.roles = new Type[index.size()];
+        index.forEach((role, i) -> this.roles[i] = role);
+
+        parent = new int[this.roles.length];
+        Arrays.fill(parent, -1);
+        for (Pair<Type, Type> sub : roleSub) {
+            parent[index.get(sub.first())] = index.get(sub.second());
+        }
+
+        ancestors = new BitSet[this.roles.length];
+        for (int i = 0; i < this.roles.length; i++) {
+            computeAncestors(i);
+        }
+    }
+
+    /**
+     * Fill in the ancestors of a role by walking up its parents until a role with known ancestors is found,
+     * then assigning ancestors back down the walked path. Revisiting a role on the path means a loop.
+     */
+    private void computeAncestors(int role) {
+        List<Integer> path = new ArrayList<>();
+        BitSet onPath = new BitSet(roles.length);
+        int current = role;
+        while (current != -1 && ancestors[current] == null) {
+            if (onPath.get(current)) {
+                throw IntegrityException.subHierarchyHasLoop(roles[current]);
+            }
+            onPath.set(current);
+            path.add(current);
+            current = parent[current];
+        }
+
+        for (int i = path.size() - 1; i >= 0; i--) {
+            int node = path.get(i);
+            int nodeParent = parent[node];
+            BitSet nodeAncestors = new BitSet(roles.length);
+            if (nodeParent != -1) {
+                nodeAncestors.or(ancestors[nodeParent]);
+                nodeAncestors.set(nodeParent);
+            }
+            ancestors[node] = nodeAncestors;
+        }
+    }
+
+    public int size() {
+        return roles.length;
+    }
+
+    public boolean contains(Type role) {
+        return index.containsKey(role);
+    }
+
+    /**
+     * @return the direct parent of the role, or null for the meta role and unknown roles
+     */
+    public Type parent(Type role) {
+        Integer i = index.get(role);
+        if (i == null || parent[i] == -1) return null;
+        return roles[parent[i]];
+    }
+
+    /**
+     * @return true if `sub` is a strict descendant of `sup` in the role hierarchy
+     */
+    public boolean isSubRole(Type sub, Type sup) {
+        Integer subIndex = index.get(sub);
+        Integer supIndex = index.get(sup);
+        if (subIndex == null || supIndex == null) return false;
+        return ancestors[subIndex].get(supIndex);
+    }
+
+    /**
+     * Plays is inherited as-is: a subtype plays everything it declares plus everything its parent plays
+     */
+    public Set<Type> inheritPlays(Set<Type> declared, Set<Type> inheritedFromParent) {
+        Set<Type> resolved = new HashSet<>(declared);
+        resolved.addAll(inheritedFromParent);
+        return resolved;
+    }
+
+    /**
+     * Relates is inherited except where a declared role overrides (is a sub role of) an inherited role
+     * The ancestors of all declared roles are OR-ed together once, so each inherited role costs one bit test
+     */
+    public Set<Type> inheritRelates(Set<Type> declared, Set<Type> inheritedFromParent) {
+        BitSet overridden = new BitSet(roles.length);
+        for (Type role : declared) {
+            Integer i = index.get(role);
+            if (i != null) overridden.or(ancestors[i]);
+        }
+
+        Set<Type> resolved = new HashSet<>(declared);
+        for (Type role : inheritedFromParent) {
+            Integer i = index.get(role);
+            if (i == null || !overridden.get(i)) {
+                resolved.add(role);
+            }
+        }
+        return resolved;
+    }
+
+    public void validate() {
+        /*
+        Conditions of validity:
+        1. (x,x) is not in the closure - checked while building it
+        2. every role that isn't the meta role has the meta role as an ancestor
+         */
+
+        int metaRole = -1;
+        for (int i = 0; i < roles.length; i++) {
+            if (roles[i].label().equals(META_ROLE)) metaRole = i;
+        }
+
+        for (int i = 0; i < roles.length; i++) {
+            if (i == metaRole) continue;
+            if (metaRole == -1 || !ancestors[i].get(metaRole)) {
+                throw IntegrityException.roleDoesNotHaveMetaRoleSuperType(roles[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.schema;
+
+import grakn.common.util.Pair;
+import grakn.verification.tools.integrity.IntegrityException;
+import grakn.verification.tools.integrity.RejectDuplicateSet;
+import grakn.verification.tools.integrity.Type;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Direct sub relation between roles, (child role, parent role)
+ * Kept apart from Sub, as roles are not subtypes of thing and do not have an entity/relation/attribute meta parent
+ */
+public class RoleSub extends RejectDuplicateSet<Pair<Type, Type>> {
+
+    /**
+     * @param roles all the roles in the schema, which may include roles not appearing in this relation
+     * @return transitive closure of this relation over the given roles
+     */
+    public RoleHierarchy closure(Iterable<Type> roles) {
+        return new RoleHierarchy(roles, this);
+    }
+
+    @Override
+    public void validate() {
+        /*
+        if (x,y) and (x,z) in role sub, then y == z
+        the closure is then checked for loops and for a common meta role root
+         */
+
+        Map<Type, Type> parents = new HashMap<>();
+        for (Pair<Type, Type> sub : set) {
+            Type existing = parents.putIfAbsent(sub.first(), sub.second());
+            if (existing != null && !existing.equals(sub.second())) {
+                throw IntegrityException.typeHasMultipleParentTypesInSub(sub.first(), existing, sub.second());
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity.schema;
+
+import com.google.common.collect.ImmutableMap;
+import grakn.common.util.Pair;
+import grakn.verification.tools.integrity.RejectDuplicateSet;
+import grakn.verification.tools.integrity.Type;
+import grakn.verification.tools.integrity.Validator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-type bitmask saying whether a type is meta, entity, relation, attribute, role or abstract
+ *
+ * Computed once from the transitive closure of sub, so that membership checks are a single bit test
+ * instead of scans over the closure or comparisons against every meta type label.
+ * Types that were never classified still get their meta bits, derived from their label.
+ * Bit tests are safe while other phases of a validation are still marking types.
+ */
+public class TypeClassification {
+
+    public static final int META = 1;
+    public static final int ENTITY = 1 << 1;
+    public static final int RELATION = 1 << 2;
+    public static final int ATTRIBUTE = 1 << 3;
+    public static final int ROLE = 1 << 4;
+    public static final int ABSTRACT = 1 << 5;
+
+    private static final Map<String, Integer> META_LABEL_BITS = ImmutableMap.<String, Integer>builder()
+            .put(Validator.META_TYPES.THING.getName(), META)
+            .put(Validator.META_TYPES.ENTITY.getName(), META)
+            .put(Validator.META_TYPES.RELATION.getName(), META)
+            .put(Validator.META_TYPES.ATTRIBUTE.getName(), META)
+            .put(RoleHierarchy.META_ROLE, META)
+            .build();
+
+    // bit given to every strict subtype of a meta type
+    private static final Map<String, Integer> META_KIND_BITS = ImmutableMap.of(
+            Validator.META_TYPES.ENTITY.getName(), ENTITY,
+            Validator.META_TYPES.RELATION.getName(), RELATION,
+            Validator.META_TYPES.ATTRIBUTE.getName(), ATTRIBUTE,
+            RoleHierarchy.META_ROLE, ROLE
+    );
+
+    private final Map<Type, Integer> bits;
+
+    // kind sets, produced together in one pass over the bits when first asked for
+    private RejectDuplicateSet<Type> entities;
+    private RejectDuplicateSet<Type> relations;
+    private RejectDuplicateSet<Type> attributes;
+
+    private TypeClassification() {
+        bits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return a classification that only knows meta types by their label
+     */
+    public static TypeClassification empty() {
+        return new TypeClassification();
+    }
+
+    /**
+     * Classify every type in the closure with a single pass over it
+     */
+    public static TypeClassification of(TransitiveSub transitiveSub) {
+        TypeClassification classification = new TypeClassification();
+        for (Pair<Type, Type> sub : transitiveSub) {
+            classification.mark(sub.first(), 0);
+            classification.mark(sub.second(), 0);
+            Integer kind = META_KIND_BITS.get(sub.second().label());
+            if (kind != null) {
+                classification.mark(sub.first(), kind);
+            }
+        }
+        return classification;
+    }
+
+    public synchronized void mark(Type type, int mask) {
+        bits.merge(type, labelBits(type) | mask, (oldBits, newBits) -> oldBits | newBits);
+        entities = null;
+    }
+
+    public void markAll(Iterable<Type> types, int mask) {
+        for (Type type : types) {
+            mark(type, mask);
+        }
+    }
+
+    public int bits(Type type) {
+        Integer typeBits = bits.get(type);
+        return typeBits != null ? typeBits : labelBits(type);
+    }
+
+    public boolean is(Type type, int mask) {
+        return (bits(type) & mask) != 0;
+    }
+
+    public boolean isMeta(Type type) { return is(type, META); }
+    public boolean isEntity(Type type) { return is(type, ENTITY); }
+    public boolean isRelation(Type type) { return is(type, RELATION); }
+    public boolean isAttribute(Type type) { return is(type, ATTRIBUTE); }
+    public boolean isRole(Type type) { return is(type, ROLE); }
+    public boolean isAbstract(Type type) { return is(type, ABSTRACT); }
+
+    public synchronized RejectDuplicateSet<Type> entities() {
+        partitionKinds();
+        return entities;
+    }
+
+    public synchronized RejectDuplicateSet<Type> relations() {
+        partitionKinds();
+        return relations;
+    }
+
+    public synchronized RejectDuplicateSet<Type> attributes() {
+        partitionKinds();
+        return attributes;
+    }
+
+    private synchronized void partitionKinds() {
+        if (entities != null) return;
+        RejectDuplicateSet<Type> entityTypes = new RejectDuplicateSet<>();
+        RejectDuplicateSet<Type> relationTypes = new RejectDuplicateSet<>();
+        RejectDuplicateSet<Type> attributeTypes = new RejectDuplicateSet<>();
+        bits.forEach((type, typeBits) -> {
+            if ((typeBits & ENTITY) != 0) entityTypes.add(type);
+            if ((typeBits & RELATION) != 0) relationTypes.add(type);
+            if ((typeBits & ATTRIBUTE) != 0) attributeTypes.add(type);
+        });
+        relations = relationTypes;
+        attributes = attributeTypes;
+        entities = entityTypes;
+    }
+
+    private static int labelBits(Type type) {
+        return META_LABEL_BITS.getOrDefault(type.label(), 0);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import grakn.client.concept.Label;
+import grakn.client.concept.SchemaConcept;
+import grakn.verification.tools.integrity.data.ExternalSorter;
+import grakn.verification.tools.integrity.data.KeyTuple;
+import grakn.verification.tools.integrity.data.KeyValidator;
+import grakn.verification.tools.integrity.data.SamplingValidator;
+import grakn.verification.tools.integrity.data.ValueValidator;
+import grakn.verification.tools.integrity.data.ViolationEstimate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the keyspace-independent parts of data validation
+ */
+public class DataValidation {
+
+    @Test
+    public void externalSortMergesSpilledRuns() {
+        List<Integer> sorted = new ArrayList<>();
+        try (ExternalSorter<KeyTuple> sorter = new ExternalSorter<>(KeyTuple.BY_VALUE, KeyTuple.CODEC, 2)) {
+            for (int value : Arrays.asList(5, 3, 9, 1, 7, 2, 8)) {
+                sorter.add(new KeyTuple("email", "person", "V" + value, Integer.toString(value)));
+            }
+            assertEquals(3, sorter.runs());
+            sorter.sorted().forEachRemaining(tuple -> sorted.add(Integer.parseInt(tuple.value())));
+        }
+        assertEquals(Arrays.asList(1, 2, 3, 5, 7, 8, 9), sorted);
+    }
+
+    @Test
+    public void externalSortMergesInBoundedFanInPasses() {
+        List<Integer> sorted = new ArrayList<>();
+        try (ExternalSorter<KeyTuple> sorter = new ExternalSorter<>(KeyTuple.BY_VALUE, KeyTuple.CODEC, 1, 2)) {
+            for (int value : Arrays.asList(5, 3, 9, 1, 7, 2, 8)) {
+                sorter.add(new KeyTuple("email", "person", "V" + value, Integer.toString(value)));
+            }
+            assertEquals(7, sorter.runs());
+            sorter.sorted().forEachRemaining(tuple -> sorted.add(Integer.parseInt(tuple.value())));
+            assertEquals(2, sorter.runs());
+        }
+        assertEquals(Arrays.asList(1, 2, 3, 5, 7, 8, 9), sorted);
+    }
+
+    @Test
+    public void keyTuplesWithLongValuesSurviveSpilling() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        String longValue = builder.toString();
+        List<KeyTuple> sorted = new ArrayList<>();
+        try (ExternalSorter<KeyTuple> sorter = new ExternalSorter<>(KeyTuple.BY_VALUE, KeyTuple.CODEC, 1)) {
+            sorter.add(new KeyTuple("essay", "person", "V2", longValue));
+            sorter.add(new KeyTuple("essay", "person", "V1", "short"));
+            sorter.sorted().forEachRemaining(sorted::add);
+        }
+        assertEquals(longValue, sorted.get(0).value());
+        assertEquals("short", sorted.get(1).value());
+    }
+
+    @Test
+    public void keyValidatorReportsMissingAndMultipleKeys() {
+        List<IntegrityException> violations = new ArrayList<>();
+        try (ExternalSorter<KeyTuple> sorter = new ExternalSorter<>(KeyTuple.BY_OWNER, KeyTuple.CODEC, 2)) {
+            sorter.add(KeyTuple.ownerMarker("email", "company", "V1"));
+            sorter.add(new KeyTuple("email", "company", "V1", "a@b.com"));
+            sorter.add(KeyTuple.ownerMarker("email", "company", "V2"));
+            sorter.add(new KeyTuple("email", "company", "V3", "c@d.com"));
+            sorter.add(KeyTuple.ownerMarker("email", "company", "V3"));
+            sorter.add(new KeyTuple("email", "company", "V3", "e@f.com"));
+
+            assertEquals(2, KeyValidator.checkOwners(sorter.sorted(), violations::add));
+        }
+        assertTrue(violations.get(0).getMessage().contains("V2"));
+        assertTrue(violations.get(1).getMessage().contains("V3"));
+    }
+
+    @Test
+    public void keyValidatorReportsSharedKeyValues() {
+        List<IntegrityException> violations = new ArrayList<>();
+        try (ExternalSorter<KeyTuple> sorter = new ExternalSorter<>(KeyTuple.BY_VALUE, KeyTuple.CODEC, 2)) {
+            sorter.add(new KeyTuple("email", "company", "V1", "a@b.com"));
+            sorter.add(new KeyTuple("email", "company", "V2", "c@d.com"));
+            sorter.add(new KeyTuple("email", "company", "V3", "a@b.com"));
+            sorter.add(new KeyTuple("serial", "company", "V3", "a@b.com"));
+
+            assertEquals(1, KeyValidator.checkValues(sorter.sorted(), violations::add));
+        }
+        assertTrue(violations.get(0).getMessage().contains("a@b.com"));
+    }
+
+    @Test
+    public void valueValidatorChecksValueTypeAndRegex() {
+        SchemaConcept emailConcept = mock(SchemaConcept.class);
+        when(emailConcept.label()).thenReturn(Label.of("email"));
+        Type email = new Type(emailConcept);
+        Pattern pattern = Pattern.compile(".+@.+\\.com");
+
+        assertNull(ValueValidator.check(email, ValueValidator.ValueType.STRING, pattern, "V1", "jobs@company.com"));
+        assertNotNull(ValueValidator.check(email, ValueValidator.ValueType.STRING, pattern, "V2", "jobs@company.org"));
+        assertNotNull(ValueValidator.check(email, ValueValidator.ValueType.STRING, pattern, "V3", 10L));
+        assertNull(ValueValidator.check(email, ValueValidator.ValueType.LONG, null, "V4", 10L));
+    }
+
+    @Test
+    public void samplingAllocationIsCappedByPopulation() {
+        Type person = type("person");
+        Type company = type("company");
+        Type car = type("car");
+        Map<Type, Long> populations = new LinkedHashMap<>();
+        populations.put(person, 90L);
+        populations.put(company, 9L);
+        populations.put(car, 1L);
+
+        Map<Type, Integer> uniform = SamplingValidator.allocate(populations, 10, SamplingValidator.Allocation.UNIFORM);
+        assertEquals(9, (int) uniform.get(person));
+        assertEquals(1, (int) uniform.get(company));
+        assertEquals(0, (int) uniform.get(car));
+
+        Map<Type, Integer> stratified = SamplingValidator.allocate(populations, 10, SamplingValidator.Allocation.STRATIFIED);
+        assertEquals(5, (int) stratified.get(person));
+        assertEquals(4, (int) stratified.get(company));
+        assertEquals(1, (int) stratified.get(car));
+
+        Map<Type, Integer> everything = SamplingValidator.allocate(populations, 1000, SamplingValidator.Allocation.UNIFORM);
+        assertEquals(90, (int) everything.get(person));
+        assertEquals(9, (int) everything.get(company));
+        assertEquals(1, (int) everything.get(car));
+    }
+
+    @Test
+    public void wilsonIntervalIsBoundedWhenNoViolationsAreSeen() {
+        double z = ViolationEstimate.zScore(0.95);
+        assertEquals(1.96, z, 0.001);
+
+        ViolationEstimate clean = ViolationEstimate.wilson(1000, 100, 0, z);
+        assertEquals(0.0, clean.rate(), 0.0);
+        assertEquals(0.0, clean.lower(), 0.0);
+        assertEquals(z * z / (100 + z * z), clean.upper(), 1e-9);
+
+        ViolationEstimate unsampled = ViolationEstimate.wilson(1000, 0, 0, z);
+        assertEquals(0.0, unsampled.lower(), 0.0);
+        assertEquals(1.0, unsampled.upper(), 0.0);
+    }
+
+    @Test
+    public void stratifiedEstimateWidensOverUnsampledStrata() {
+        double z = ViolationEstimate.zScore(0.95);
+        ViolationEstimate sampled = ViolationEstimate.wilson(900, 100, 10, z);
+        ViolationEstimate unsampled = ViolationEstimate.wilson(100, 0, 0, z);
+
+        ViolationEstimate complete = ViolationEstimate.stratified(Arrays.asList(sampled, ViolationEstimate.wilson(100, 100, 10, z)), z);
+        assertEquals(0.1, complete.rate(), 1e-9);
+        assertTrue(complete.upper() < 0.2);
+
+        ViolationEstimate partial = ViolationEstimate.stratified(Arrays.asList(sampled, unsampled), z);
+        assertEquals(0.1, partial.rate(), 1e-9);
+        assertEquals(1000, partial.population());
+        // the unsampled tenth of the population could be entirely in violation, or entirely clean
+        assertTrue(partial.lower() < 0.9 * 0.1);
+        assertTrue(partial.upper() >= 0.9 * 0.1 + 0.1);
+    }
+
+    @Test
+    public void distinctOffsetsAreSortedAndInRange() {
+        List<Long> offsets = SamplingValidator.distinctOffsets(50, 20, new Random(0));
+        assertEquals(20, offsets.size());
+        assertEquals(20, new HashSet<>(offsets).size());
+        for (int i = 0; i < offsets.size(); i++) {
+            assertTrue(offsets.get(i) >= 0 && offsets.get(i) < 50);
+            if (i > 0) assertTrue(offsets.get(i - 1) < offsets.get(i));
+        }
+
+        List<Long> all = SamplingValidator.distinctOffsets(5, 5, new Random(0));
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), all);
+    }
+
+    @Test
+    public void sampledOffsetsAreFetchedInRunsOfConsecutivePositions() {
+        List<long[]> runs = SamplingValidator.runs(Arrays.asList(2L, 3L, 4L, 9L, 11L, 12L));
+        assertEquals(3, runs.size());
+        assertArrayEquals(new long[]{2, 3}, runs.get(0));
+        assertArrayEquals(new long[]{9, 1}, runs.get(1));
+        assertArrayEquals(new long[]{11, 2}, runs.get(2));
+        assertTrue(SamplingValidator.runs(new ArrayList<>()).isEmpty());
+    }
+
+    private static Type type(String label) {
+        SchemaConcept concept = mock(SchemaConcept.class);
+        when(concept.label()).thenReturn(Label.of(label));
+        return new Type(concept);
+    }
+}
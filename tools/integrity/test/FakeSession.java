@@ -0,0 +1,304 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import grakn.client.GraknClient;
+import grakn.client.answer.ConceptMap;
+import grakn.client.concept.Concept;
+import grakn.client.concept.Label;
+import grakn.client.concept.SchemaConcept;
+import graql.lang.query.GraqlGet;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * An in-process stand-in for a GraknClient.Session, backed by an in-memory schema.
+ *
+ * It answers exactly the Graql shapes the Validator issues (recognised from the canonical printed form of the query)
+ * and the concept API calls it makes, optionally sleeping for a fixed latency on every call, so Validator runs can
+ * be tested and benchmarked deterministically without a server. Any other query fails loudly.
+ */
+public class FakeSession {
+
+    private static final String THING = "thing";
+    private static final String ROLE = "role";
+    private static final List<String> META_TYPES = Collections.unmodifiableList(Arrays.asList("entity", "relation", "attribute"));
+    private static final List<String> ANSWER_VARIABLES = Collections.unmodifiableList(Arrays.asList("x", "role"));
+
+    private static final Pattern SUB_THING = query("match \\$x sub thing; get;");
+    private static final Pattern SUB_ROLE = query("match \\$x sub role; get;");
+    private static final Pattern SUB = query("match \\$x type (\\S+); \\$y type (\\S+); \\$x sub \\$y; get;");
+    private static final Pattern HAS = query("match \\$owner type (\\S+); \\$owner (has|key) (\\S+); get;");
+    private static final Pattern ROLES = query("match \\$type type (\\S+); \\$type (relates|plays) \\$role; get \\$role;");
+    private static final Pattern ABSTRACT = query("match \\$type type (\\S+); \\$type abstract; get;");
+
+    private final Map<String, String> parents;       // every type and role, except thing and role, to its parent
+    private final Map<String, Set<String>> has;
+    private final Map<String, Set<String>> keys;
+    private final Map<String, Set<String>> plays;
+    private final Map<String, Set<String>> relates;
+    private final Set<String> abstractTypes;
+    private final long latencyMillis;
+
+    private final Map<String, SchemaConcept.Remote> concepts;
+    private final Map<String, Map<String, ConceptMap>> answers;    // variable -> label -> answer binding it
+    private final List<ConceptMap> exists;
+    private final GraknClient.Session session;
+    private final AtomicLong calls;
+
+    private FakeSession(Builder builder) {
+        this.parents = builder.parents;
+        this.has = builder.has;
+        this.keys = builder.keys;
+        this.plays = builder.plays;
+        this.relates = builder.relates;
+        this.abstractTypes = builder.abstractTypes;
+        this.latencyMillis = builder.latencyMillis;
+        this.calls = new AtomicLong();
+
+        // mocks are all created and stubbed up front, so they are only read concurrently
+        this.concepts = new HashMap<>();
+        concepts.put(THING, concept(THING));
+        concepts.put(ROLE, concept(ROLE));
+        parents.keySet().forEach(label -> concepts.put(label, concept(label)));
+        parents.forEach((label, parent) -> when(concepts.get(label).sup()).thenReturn(concepts.get(parent)));
+        this.answers = new HashMap<>();
+        for (String variable : ANSWER_VARIABLES) {
+            Map<String, ConceptMap> byLabel = new HashMap<>();
+            concepts.keySet().forEach(label -> byLabel.put(label, answer(variable, concepts.get(label))));
+            answers.put(variable, byLabel);
+        }
+        this.exists = Collections.singletonList(mock(ConceptMap.class, withSettings().stubOnly()));
+
+        GraknClient.Transaction tx = mock(GraknClient.Transaction.class, withSettings().stubOnly());
+        when(tx.execute(any(GraqlGet.class))).thenAnswer(delayed(invocation -> execute(invocation.getArgument(0).toString())));
+        when(tx.getSchemaConcept(any(Label.class))).thenAnswer(delayed(invocation -> concepts.get(invocation.getArgument(0).toString())));
+
+        GraknClient.Transaction.Builder transactions = mock(GraknClient.Transaction.Builder.class, withSettings().stubOnly());
+        when(transactions.read()).thenReturn(tx);
+        when(transactions.write()).thenReturn(tx);
+
+        this.session = mock(GraknClient.Session.class, withSettings().stubOnly());
+        when(session.transaction()).thenReturn(transactions);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public GraknClient.Session session() {
+        return session;
+    }
+
+    /**
+     * Number of queries and concept API calls answered so far
+     */
+    public long calls() {
+        return calls.get();
+    }
+
+    private <T> Answer<T> delayed(Answer<T> answer) {
+        return invocation -> {
+            calls.incrementAndGet();
+            if (latencyMillis > 0) Thread.sleep(latencyMillis);
+            return answer.answer(invocation);
+        };
+    }
+
+    private List<ConceptMap> execute(String query) {
+        String normalised = query.replaceAll("\\s+", " ").trim();
+        Matcher matcher;
+        if (SUB_THING.matcher(normalised).matches()) {
+            List<ConceptMap> answers = new ArrayList<>();
+            answers.add(answer("x", THING));
+            parents.keySet().stream().filter(label -> !isRole(label)).forEach(label -> answers.add(answer("x", label)));
+            return answers;
+        } else if (SUB_ROLE.matcher(normalised).matches()) {
+            List<ConceptMap> answers = new ArrayList<>();
+            answers.add(answer("x", ROLE));
+            parents.keySet().stream().filter(this::isRole).forEach(label -> answers.add(answer("x", label)));
+            return answers;
+        } else if ((matcher = SUB.matcher(normalised)).matches()) {
+            return ask(ancestors(matcher.group(1)).contains(matcher.group(2)));
+        } else if ((matcher = HAS.matcher(normalised)).matches()) {
+            boolean key = matcher.group(2).equals("key");
+            String attribute = matcher.group(3);
+            // a key is also owned
+            boolean owned = ancestors(matcher.group(1)).stream()
+                    .anyMatch(type -> keys.getOrDefault(type, Collections.emptySet()).contains(attribute)
+                            || (!key && has.getOrDefault(type, Collections.emptySet()).contains(attribute)));
+            return ask(owned);
+        } else if ((matcher = ROLES.matcher(normalised)).matches()) {
+            Set<String> roles = matcher.group(2).equals("relates") ? relatedRoles(matcher.group(1)) : playedRoles(matcher.group(1));
+            List<ConceptMap> answers = new ArrayList<>();
+            roles.forEach(role -> answers.add(answer("role", role)));
+            return answers;
+        } else if ((matcher = ABSTRACT.matcher(normalised)).matches()) {
+            return ask(abstractTypes.contains(matcher.group(1)));
+        }
+        throw new UnsupportedOperationException("FakeSession cannot answer query: " + query);
+    }
+
+    private boolean isRole(String label) {
+        return ancestors(label).contains(ROLE);
+    }
+
+    /**
+     * The type itself and all of its supertypes
+     */
+    private List<String> ancestors(String label) {
+        List<String> ancestors = new ArrayList<>();
+        for (String type = label; type != null; type = parents.get(type)) {
+            ancestors.add(type);
+        }
+        return ancestors;
+    }
+
+    private Set<String> playedRoles(String type) {
+        Set<String> roles = new LinkedHashSet<>();
+        ancestors(type).forEach(ancestor -> roles.addAll(plays.getOrDefault(ancestor, Collections.emptySet())));
+        return roles;
+    }
+
+    /**
+     * Roles declared by the relation, plus those inherited from its parent that none of its own roles override
+     */
+    private Set<String> relatedRoles(String relation) {
+        Set<String> declared = relates.getOrDefault(relation, Collections.emptySet());
+        Set<String> roles = new LinkedHashSet<>(declared);
+        String parent = parents.get(relation);
+        if (parent != null) {
+            Set<String> overridden = new HashSet<>();
+            declared.forEach(role -> overridden.addAll(ancestors(role)));
+            relatedRoles(parent).stream().filter(role -> !overridden.contains(role) || declared.contains(role)).forEach(roles::add);
+        }
+        return roles;
+    }
+
+    private List<ConceptMap> ask(boolean exists) {
+        return exists ? this.exists : Collections.emptyList();
+    }
+
+    private ConceptMap answer(String variable, String label) {
+        return answers.get(variable).get(label);
+    }
+
+    private static ConceptMap answer(String variable, SchemaConcept.Remote schemaConcept) {
+        Concept concept = mock(Concept.class, withSettings().stubOnly());
+        when(concept.asSchemaConcept()).thenReturn(schemaConcept);
+        ConceptMap answer = mock(ConceptMap.class, withSettings().stubOnly());
+        when(answer.get(variable)).thenReturn(concept);
+        return answer;
+    }
+
+    private static SchemaConcept.Remote concept(String label) {
+        SchemaConcept.Remote concept = mock(SchemaConcept.Remote.class, withSettings().stubOnly());
+        when(concept.label()).thenReturn(Label.of(label));
+        return concept;
+    }
+
+    private static Pattern query(String regex) {
+        return Pattern.compile(regex);
+    }
+
+    public static class Builder {
+
+        private final Map<String, String> parents = new LinkedHashMap<>();
+        private final Map<String, Set<String>> has = new HashMap<>();
+        private final Map<String, Set<String>> keys = new HashMap<>();
+        private final Map<String, Set<String>> plays = new HashMap<>();
+        private final Map<String, Set<String>> relates = new HashMap<>();
+        private final Set<String> abstractTypes = new HashSet<>();
+        private long latencyMillis = 0;
+
+        private Builder() {
+            META_TYPES.forEach(meta -> parents.put(meta, THING));
+        }
+
+        public Builder entity(String label) { return sub(label, "entity"); }
+        public Builder relation(String label) { return sub(label, "relation"); }
+        public Builder attribute(String label) { return sub(label, "attribute"); }
+        public Builder role(String label) { return sub(label, ROLE); }
+
+        /**
+         * Declare a type or role with the given parent, which must already be declared
+         */
+        public Builder sub(String label, String parent) {
+            parents.put(label, parent);
+            return this;
+        }
+
+        public Builder has(String owner, String attribute) {
+            has.computeIfAbsent(owner, o -> new LinkedHashSet<>()).add(attribute);
+            return this;
+        }
+
+        public Builder key(String owner, String attribute) {
+            keys.computeIfAbsent(owner, o -> new LinkedHashSet<>()).add(attribute);
+            return this;
+        }
+
+        public Builder plays(String type, String role) {
+            parents.putIfAbsent(role, ROLE);
+            plays.computeIfAbsent(type, t -> new LinkedHashSet<>()).add(role);
+            return this;
+        }
+
+        public Builder relates(String relation, String role) {
+            parents.putIfAbsent(role, ROLE);
+            relates.computeIfAbsent(relation, r -> new LinkedHashSet<>()).add(role);
+            return this;
+        }
+
+        public Builder abstractType(String label) {
+            abstractTypes.add(label);
+            return this;
+        }
+
+        /**
+         * Sleep this long on every query and concept API call, to simulate a remote server
+         */
+        public Builder latency(long millis) {
+            this.latencyMillis = millis;
+            return this;
+        }
+
+        public FakeSession build() {
+            return new FakeSession(this);
+        }
+    }
+}
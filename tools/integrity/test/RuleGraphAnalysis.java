@@ -0,0 +1,87 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import grakn.verification.tools.integrity.rule.RuleComponent;
+import grakn.verification.tools.integrity.rule.RuleGraph;
+import grakn.verification.tools.integrity.rule.RuleSignature;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the rule dependency graph and its component analysis, independent of any keyspace
+ */
+public class RuleGraphAnalysis {
+
+    private static Set<String> labels(String... labels) {
+        return new HashSet<>(Arrays.asList(labels));
+    }
+
+    @Test
+    public void recursionThroughNegationIsNotStratifiable() {
+        List<RuleSignature> rules = Arrays.asList(
+                new RuleSignature("transitive-location", labels("locates"), labels(), labels("locates")),
+                new RuleSignature("a", labels("b-type"), labels(), labels("a-type")),
+                new RuleSignature("b", labels(), labels("a-type"), labels("b-subtype")),
+                new RuleSignature("c", labels("a-type"), labels(), labels("c-type")));
+        Map<String, Set<String>> supertypes = new HashMap<>();
+        supertypes.put("b-subtype", labels("b-subtype", "b-type"));
+
+        List<RuleComponent> components = new RuleGraph(rules, supertypes).components();
+        assertEquals(3, components.size());
+
+        RuleComponent transitive = components.get(0);
+        assertEquals(Collections.singletonList("transitive-location"), transitive.rules());
+        assertTrue(transitive.isRecursive());
+        assertTrue(transitive.isStratifiable());
+
+        RuleComponent cycle = components.get(1);
+        assertEquals(Arrays.asList("a", "b"), cycle.rules());
+        assertTrue(cycle.isRecursive());
+        assertFalse(cycle.isStratifiable());
+        assertEquals(2, cycle.depthEstimate());
+
+        RuleComponent dependent = components.get(2);
+        assertFalse(dependent.isRecursive());
+        assertEquals(1, dependent.stratum());
+    }
+
+    @Test
+    public void longRuleChainsAreAnalysedWithoutRecursion() {
+        List<RuleSignature> rules = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            rules.add(new RuleSignature("rule-" + i, labels("type-" + (i + 1)), labels(), labels("type-" + i)));
+        }
+        List<RuleComponent> components = new RuleGraph(rules, new HashMap<>()).components();
+        assertEquals(100000, components.size());
+        assertEquals(99999, components.get(components.size() - 1).stratum());
+    }
+}
@@ -18,20 +18,30 @@
 
 package grakn.verification.tools.integrity;
 
+import com.google.common.collect.Sets;
 import grakn.client.concept.Label;
 import grakn.client.concept.SchemaConcept;
 import grakn.common.util.Pair;
 import grakn.verification.tools.integrity.schema.Has;
 import grakn.verification.tools.integrity.schema.Plays;
 import grakn.verification.tools.integrity.schema.Relates;
+import grakn.verification.tools.integrity.schema.RoleHierarchy;
+import grakn.verification.tools.integrity.schema.RoleSub;
 import grakn.verification.tools.integrity.schema.Sub;
 import grakn.verification.tools.integrity.schema.TransitiveSub;
+import grakn.verification.tools.integrity.schema.TypeClassification;
 import org.hamcrest.CoreMatchers;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -550,4 +560,105 @@ public class SemanticSets {
         exception.expectMessage("thing meta type may not relate roles");
         relatesSet.validate();
     }
+
+    @Test
+    public void roleHierarchyClosureResolvesOverriddenRoles() {
+        SchemaConcept mockSchemaConcept0 = mock(SchemaConcept.class);
+        when(mockSchemaConcept0.label()).thenReturn(Label.of("role"));
+        SchemaConcept mockSchemaConcept1 = mock(SchemaConcept.class);
+        when(mockSchemaConcept1.label()).thenReturn(Label.of("employee"));
+        SchemaConcept mockSchemaConcept2 = mock(SchemaConcept.class);
+        when(mockSchemaConcept2.label()).thenReturn(Label.of("contractor"));
+        SchemaConcept mockSchemaConcept3 = mock(SchemaConcept.class);
+        when(mockSchemaConcept3.label()).thenReturn(Label.of("employer"));
+
+        Type metaRole = new Type(mockSchemaConcept0);
+        Type employee = new Type(mockSchemaConcept1);
+        Type contractor = new Type(mockSchemaConcept2);
+        Type employer = new Type(mockSchemaConcept3);
+
+        RoleSub roleSub = new RoleSub();
+        roleSub.add(new Pair<>(employee, metaRole));
+        roleSub.add(new Pair<>(contractor, employee));
+        roleSub.add(new Pair<>(employer, metaRole));
+        roleSub.validate();
+
+        RoleHierarchy roleHierarchy = roleSub.closure(Arrays.asList(metaRole, employee, contractor, employer));
+        roleHierarchy.validate();
+
+        assertTrue(roleHierarchy.isSubRole(contractor, employee));
+        assertTrue(roleHierarchy.isSubRole(contractor, metaRole));
+        assertFalse(roleHierarchy.isSubRole(employee, contractor));
+        assertFalse(roleHierarchy.isSubRole(contractor, employer));
+
+        // `relates contractor as employee` overrides employee but keeps employer
+        Set<Type> resolved = roleHierarchy.inheritRelates(Sets.newHashSet(contractor), Sets.newHashSet(employee, employer));
+        assertEquals(Sets.newHashSet(contractor, employer), resolved);
+    }
+
+    @Test
+    public void roleHierarchyThrowsOnLoop() {
+        SchemaConcept mockSchemaConcept0 = mock(SchemaConcept.class);
+        when(mockSchemaConcept0.label()).thenReturn(Label.of("role"));
+        SchemaConcept mockSchemaConcept1 = mock(SchemaConcept.class);
+        when(mockSchemaConcept1.label()).thenReturn(Label.of("a"));
+        SchemaConcept mockSchemaConcept2 = mock(SchemaConcept.class);
+        when(mockSchemaConcept2.label()).thenReturn(Label.of("b"));
+
+        Type metaRole = new Type(mockSchemaConcept0);
+        Type a = new Type(mockSchemaConcept1);
+        Type b = new Type(mockSchemaConcept2);
+
+        RoleSub roleSub = new RoleSub();
+        roleSub.add(new Pair<>(a, b));
+        roleSub.add(new Pair<>(b, a));
+
+        exception.expect(IntegrityException.class);
+        exception.expectMessage("is in a loop in the transitive closure of sub");
+        roleSub.closure(Arrays.asList(metaRole, a, b));
+    }
+
+    @Test
+    public void typeClassificationMarksKindsAndMetaTypes() {
+        SchemaConcept mockSchemaConcept0 = mock(SchemaConcept.class);
+        when(mockSchemaConcept0.label()).thenReturn(Label.of("person"));
+        SchemaConcept mockSchemaConcept1 = mock(SchemaConcept.class);
+        when(mockSchemaConcept1.label()).thenReturn(Label.of("employment"));
+        SchemaConcept mockSchemaConcept2 = mock(SchemaConcept.class);
+        when(mockSchemaConcept2.label()).thenReturn(Label.of("entity"));
+        SchemaConcept mockSchemaConcept3 = mock(SchemaConcept.class);
+        when(mockSchemaConcept3.label()).thenReturn(Label.of("relation"));
+        SchemaConcept mockSchemaConcept4 = mock(SchemaConcept.class);
+        when(mockSchemaConcept4.label()).thenReturn(Label.of("thing"));
+
+        Type person = new Type(mockSchemaConcept0);
+        Type employment = new Type(mockSchemaConcept1);
+        Type entityMeta = new Type(mockSchemaConcept2);
+        Type relationMeta = new Type(mockSchemaConcept3);
+        Type thingMeta = new Type(mockSchemaConcept4);
+
+        TransitiveSub transitiveSub = new TransitiveSub();
+        transitiveSub.add(new Pair<>(person, entityMeta));
+        transitiveSub.add(new Pair<>(person, thingMeta));
+        transitiveSub.add(new Pair<>(employment, relationMeta));
+        transitiveSub.add(new Pair<>(employment, thingMeta));
+        transitiveSub.add(new Pair<>(entityMeta, thingMeta));
+        transitiveSub.add(new Pair<>(relationMeta, thingMeta));
+
+        TypeClassification classification = TypeClassification.of(transitiveSub);
+        classification.mark(employment, TypeClassification.ABSTRACT);
+
+        assertTrue(classification.isEntity(person));
+        assertFalse(classification.isMeta(person));
+        assertTrue(classification.isRelation(employment));
+        assertTrue(classification.isAbstract(employment));
+        assertFalse(classification.isAbstract(person));
+        assertTrue(classification.isMeta(entityMeta));
+        assertFalse(classification.isEntity(entityMeta));
+
+        assertTrue(classification.entities().contains(person));
+        assertEquals(1, classification.entities().size());
+        assertTrue(classification.relations().contains(employment));
+        assertEquals(0, classification.attributes().size());
+    }
 }
@@ -19,20 +19,26 @@
 package grakn.verification.tools.integrity;
 
 import grakn.client.GraknClient;
+import grakn.verification.tools.integrity.data.SamplingReport;
+import grakn.verification.tools.integrity.data.SamplingValidator;
 import graql.lang.Graql;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class ValidatorIT {
 
 
     private static GraknClient client;
+    String keyspace;
     GraknClient.Session session;
 
     @BeforeClass
@@ -42,8 +48,8 @@ public class ValidatorIT {
 
     @Before
     public void openSession() {
-        String randomKeyspace = "ksp_" + (UUID.randomUUID()).toString().replace("-", "_").substring(10);
-        session = client.session(randomKeyspace);
+        keyspace = "ksp_" + (UUID.randomUUID()).toString().replace("-", "_").substring(10);
+        session = client.session(keyspace);
         loadSchema(session);
     }
 
@@ -69,4 +75,45 @@ public class ValidatorIT {
         Validator validator = new Validator(session);
         assertTrue(validator.validate());
     }
+
+    @Test
+    public void validationServiceReportsEveryKeyspaceInOrder() {
+        String invalidKeyspace = "ksp_" + (UUID.randomUUID()).toString().replace("-", "_").substring(10);
+        try (GraknClient.Session invalidSession = client.session(invalidKeyspace);
+             GraknClient.Transaction tx = invalidSession.transaction().write()) {
+            // Grakn accepts an abstract relation that relates no roles, the validator requires every relation to relate one
+            tx.execute(Graql.parse("define grouping sub relation, abstract;").asDefine());
+            tx.commit();
+        }
+
+        try (ValidationService service = new ValidationService(client, 2, 4)) {
+            List<ValidationReport> reports = service.validate(Arrays.asList(invalidKeyspace, keyspace));
+            assertEquals(2, reports.size());
+            assertEquals(invalidKeyspace, reports.get(0).keyspace());
+            assertEquals(ValidationReport.Status.INVALID, reports.get(0).status());
+            assertEquals(keyspace, reports.get(1).keyspace());
+            assertEquals(ValidationReport.Status.VALID, reports.get(1).status());
+        }
+    }
+
+    @Test
+    public void samplingValidatorFindsNoViolationsInValidData() {
+        try (GraknClient.Transaction tx = session.transaction().write()) {
+            tx.execute(Graql.parse("insert " +
+                    "$p isa person, has name \"alice\"; $q isa person, has name \"bob\";" +
+                    "$c isa company, has email \"jobs@company.com\";" +
+                    "(employer: $c, employee: $p) isa employment; (employer: $q, employee: $p) isa employment;").asInsert());
+            tx.commit();
+        }
+
+        ValidatedSchema schema = new Validator(session).validateSchema();
+        SamplingValidator sampler = new SamplingValidator(session, schema, 0, 0.95);
+        SamplingReport report = sampler.sample(10, SamplingValidator.Allocation.STRATIFIED);
+
+        assertTrue(report.noViolationsSampled());
+        for (SamplingValidator.Check check : SamplingValidator.Check.values()) {
+            assertEquals(0.0, report.estimate(check).rate(), 0.0);
+            assertTrue(report.estimate(check).upper() < 1.0);
+        }
+    }
 }
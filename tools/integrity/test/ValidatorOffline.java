@@ -0,0 +1,95 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.integrity;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Run the Validator end to end against an in-memory FakeSession instead of a Grakn server
+ */
+public class ValidatorOffline {
+
+    private static FakeSession.Builder employmentSchema() {
+        return FakeSession.builder()
+                .entity("person").entity("company")
+                .relation("employment")
+                .attribute("name").attribute("email")
+                .has("person", "name").key("company", "email")
+                .relates("employment", "employer").relates("employment", "employee")
+                .plays("person", "employee").plays("person", "employer").plays("company", "employer");
+    }
+
+    @Test
+    public void validSchemaIsValidatedOffline() {
+        FakeSession fake = employmentSchema().build();
+        assertTrue(new Validator(fake.session()).validate());
+        assertTrue(fake.calls() > 0);
+    }
+
+    @Test
+    public void inheritedAndOverriddenRolesAreValidatedOffline() {
+        FakeSession fake = employmentSchema()
+                .sub("contract", "employment")
+                .sub("contractor", "employee")
+                .relates("contract", "contractor")
+                .plays("person", "contractor")
+                .sub("employee-person", "person")
+                .build();
+        assertTrue(new Validator(fake.session()).validate());
+    }
+
+    @Test
+    public void collectAllReportsViolationsFoundOffline() {
+        FakeSession fake = employmentSchema()
+                .plays("company", "shareholder")
+                .build();
+        ValidationReport report = new Validator(fake.session()).validateAll("fake", 100, 4);
+        assertEquals(ValidationReport.Status.INVALID, report.status());
+        assertEquals(ValidationReport.PhaseStatus.FAILED, report.phases().get(ValidationPhase.PLAYS_RELATES_OVERLAP));
+    }
+
+    @Test
+    public void latencyIsAppliedToEveryCall() {
+        FakeSession fake = employmentSchema().latency(1).build();
+        long start = System.currentTimeMillis();
+        assertTrue(new Validator(fake.session()).validate());
+        assertTrue(System.currentTimeMillis() - start >= fake.calls());
+    }
+
+    @Test
+    public void schemaDiffReportsOnlyDifferingFacts() {
+        FakeSession blue = employmentSchema().build();
+        FakeSession green = employmentSchema().attribute("age").has("person", "age").build();
+
+        assertTrue(SchemaDiff.compute(blue.session(), employmentSchema().build().session()).isEmpty());
+
+        SchemaDiff diff = SchemaDiff.compute(blue.session(), green.session());
+        List<String> differences = diff.differences().stream().map(SchemaDiff.Difference::toString).collect(Collectors.toList());
+        assertTrue(differences.contains("+ type age"));
+        assertTrue(differences.contains("+ has (person, age)"));
+        assertTrue(diff.differences().stream().allMatch(difference -> difference.side() == SchemaDiff.Side.RIGHT_ONLY));
+        assertTrue(diff.differences().stream().allMatch(difference -> difference.fact().contains("age")));
+    }
+}
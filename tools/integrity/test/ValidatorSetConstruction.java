@@ -24,13 +24,19 @@ import grakn.client.concept.SchemaConcept;
 import grakn.common.util.Pair;
 import grakn.verification.tools.integrity.schema.Plays;
 import grakn.verification.tools.integrity.schema.Relates;
+import grakn.verification.tools.integrity.schema.RoleHierarchy;
+import grakn.verification.tools.integrity.schema.RoleSub;
 import grakn.verification.tools.integrity.schema.Sub;
 import grakn.verification.tools.integrity.schema.TransitiveSub;
+import grakn.verification.tools.integrity.schema.TypeClassification;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -101,15 +107,16 @@ public class ValidatorSetConstruction {
         // this should not error
         TransitiveSub transitiveSub = semanticSub.noIdentityTransitiveSub();
 
-        RejectDuplicateSet<Type> entities = validator.createEntityTypes(transitiveSub);
+        TypeClassification classification = validator.createTypeClassification(transitiveSub, new RejectDuplicateSet<>());
+        RejectDuplicateSet<Type> entities = classification.entities();
         for (Type type : Arrays.asList(type0, type1, type2)) {
             assertTrue(entities.contains(type));
         }
-        RejectDuplicateSet<Type> relations = validator.createRelationTypes(transitiveSub);
+        RejectDuplicateSet<Type> relations = classification.relations();
         for (Type type : Arrays.asList(type3, type4)) {
             assertTrue(relations.contains(type));
         }
-        RejectDuplicateSet<Type> attributes = validator.createAttributeTypes(transitiveSub);
+        RejectDuplicateSet<Type> attributes = classification.attributes();
         assertEquals(attributes.size(), 0);
     }
 
@@ -143,4 +150,127 @@ public class ValidatorSetConstruction {
         validator.validatePlaysAndRelatesOverlap(plays, relates);
 
     }
+
+    @Test
+    public void overriddenRoleStillRelatedThrows() {
+        SchemaConcept mockSchemaConcept0 = mock(SchemaConcept.class);
+        when(mockSchemaConcept0.label()).thenReturn(Label.of("role"));
+        SchemaConcept mockSchemaConcept1 = mock(SchemaConcept.class);
+        when(mockSchemaConcept1.label()).thenReturn(Label.of("employee"));
+        SchemaConcept mockSchemaConcept2 = mock(SchemaConcept.class);
+        when(mockSchemaConcept2.label()).thenReturn(Label.of("contractor"));
+        SchemaConcept mockSchemaConcept3 = mock(SchemaConcept.class);
+        when(mockSchemaConcept3.label()).thenReturn(Label.of("employment"));
+        SchemaConcept mockSchemaConcept4 = mock(SchemaConcept.class);
+        when(mockSchemaConcept4.label()).thenReturn(Label.of("contract"));
+
+        Type metaRole = new Type(mockSchemaConcept0);
+        Type employee = new Type(mockSchemaConcept1);
+        Type contractor = new Type(mockSchemaConcept2);
+        Type employment = new Type(mockSchemaConcept3);
+        Type contract = new Type(mockSchemaConcept4);
+
+        RoleSub roleSub = new RoleSub();
+        roleSub.add(new Pair<>(employee, metaRole));
+        roleSub.add(new Pair<>(contractor, employee));
+        RoleHierarchy roleHierarchy = roleSub.closure(Arrays.asList(metaRole, employee, contractor));
+
+        Sub sub = new Sub();
+        sub.add(new Pair<>(contract, employment));
+
+        Relates relates = new Relates();
+        relates.add(new Pair<>(employment, employee));
+        relates.add(new Pair<>(contract, contractor));
+        relates.add(new Pair<>(contract, employee));
+
+        exception.expect(IntegrityException.class);
+        exception.expectMessage("Relation type contract still relates role employee, which it overrides");
+
+        GraknClient.Session mockSession = mock(GraknClient.Session.class);
+        Validator validator = new Validator(mockSession);
+        validator.validateRoleInheritance(sub, new Plays(), relates, roleHierarchy);
+    }
+
+    @Test
+    public void collectAllSchedulingReportsEveryViolationAndSkipsDependents() {
+        SchemaConcept mockSchemaConcept0 = mock(SchemaConcept.class);
+        when(mockSchemaConcept0.label()).thenReturn(Label.of("aRelation"));
+        Type relation = new Type(mockSchemaConcept0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ValidationReport report = new PhaseScheduler(executor, 10).run("keyspace", (phase, results, violations) -> {
+                if (phase == ValidationPhase.SUB) {
+                    // the set cannot be built at all, so everything depending on it is skipped
+                    throw IntegrityException.subHierarchyHasLoop(relation);
+                }
+                if (phase == ValidationPhase.ROLES) {
+                    // the set is built but invalid, so its dependents still run
+                    violations.accept(IntegrityException.relationWithoutRole(relation));
+                    violations.accept(IntegrityException.relationWithoutRole(relation));
+                }
+                return phase;
+            });
+
+            assertEquals(ValidationReport.Status.INVALID, report.status());
+            assertEquals(3, report.violations().size());
+            assertEquals(ValidationReport.PhaseStatus.FAILED, report.phases().get(ValidationPhase.SUB));
+            assertEquals(ValidationReport.PhaseStatus.SKIPPED, report.phases().get(ValidationPhase.TRANSITIVE_SUB));
+            assertEquals(ValidationReport.PhaseStatus.SKIPPED, report.phases().get(ValidationPhase.HAS));
+            assertEquals(ValidationReport.PhaseStatus.FAILED, report.phases().get(ValidationPhase.ROLES));
+            assertEquals(ValidationReport.PhaseStatus.PASSED, report.phases().get(ValidationPhase.ROLE_HIERARCHY));
+            assertEquals(ValidationReport.PhaseStatus.PASSED, report.phases().get(ValidationPhase.TYPES));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void collectAllSchedulingStopsAtViolationCap() {
+        SchemaConcept mockSchemaConcept0 = mock(SchemaConcept.class);
+        when(mockSchemaConcept0.label()).thenReturn(Label.of("aRelation"));
+        Type relation = new Type(mockSchemaConcept0);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ValidationReport report = new PhaseScheduler(executor, 2).run("keyspace", (phase, results, violations) -> {
+                violations.accept(IntegrityException.relationWithoutRole(relation));
+                return phase;
+            });
+            assertEquals(2, report.violations().size());
+            assertTrue(report.phases().containsValue(ValidationReport.PhaseStatus.SKIPPED));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void timeBudgetRunsCheapPhasesFirstAndReportsTheRestIncomplete() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        try {
+            ValidationReport report = new PhaseScheduler(executor, 10, 1, 200).run("keyspace", (phase, results, violations) -> {
+                if (phase.cost() == ValidationPhase.Cost.QUERY_PER_TYPE_PAIR) {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return phase;
+            }, () -> cancelled.set(true));
+
+            assertTrue(cancelled.get());
+            assertEquals(ValidationReport.Status.INCOMPLETE, report.status());
+            assertEquals(ValidationReport.PhaseStatus.PASSED, report.phases().get(ValidationPhase.TYPES));
+            assertEquals(ValidationReport.PhaseStatus.PASSED, report.phases().get(ValidationPhase.ROLE_SUB));
+            assertEquals(ValidationReport.PhaseStatus.PASSED, report.phases().get(ValidationPhase.ROLE_HIERARCHY));
+            assertEquals(ValidationReport.PhaseStatus.INCOMPLETE, report.phases().get(ValidationPhase.SUB));
+            assertTrue(report.phases(ValidationReport.PhaseStatus.INCOMPLETE).contains(ValidationPhase.ROLE_INHERITANCE));
+            assertTrue(report.violations().isEmpty());
+            assertTrue(report.error() == null);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
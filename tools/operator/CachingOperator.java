@@ -0,0 +1,176 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import graql.lang.pattern.Pattern;
+import graql.lang.statement.Variable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Memoising decorator for an operator. Outputs are cached per source pattern and type context, so that patterns
+ * reached repeatedly while iterating operators to a fixpoint are only transformed once. The cache is bounded and
+ * evicts least recently used entries.
+ *
+ * Source patterns are keyed by their CanonicalForm, so alpha-equivalent patterns share an entry and cached outputs
+ * are renamed into the variables of the pattern being transformed. Type contexts are compared by identity. Only
+ * deterministic operators should be cached - a cached fuzzing operator would keep returning its first fuzzed outputs.
+ */
+public class CachingOperator implements Operator {
+
+    private final Operator operator;
+    private final Canonicaliser canonicaliser;
+    private final Cache<Key, Entry> cache;
+
+    public CachingOperator(Operator operator, long maximumSize) {
+        this(operator, maximumSize, new Canonicaliser());
+    }
+
+    public CachingOperator(Operator operator, long maximumSize, Canonicaliser canonicaliser) {
+        this.operator = operator;
+        this.canonicaliser = canonicaliser;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
+        CanonicalForm form = canonicaliser.canonicalise(src);
+        try {
+            Entry entry = cache.get(new Key(form, ctx), () -> new Entry(operator.apply(src, ctx).collect(Collectors.toList()), src, form));
+            return entry.outputs(src, form).stream();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public long estimate(Pattern src, TypeContext ctx) {
+        Entry cached = cache.getIfPresent(new Key(canonicaliser.canonicalise(src), ctx));
+        return cached != null ? cached.outputs.size() : operator.estimate(src, ctx);
+    }
+
+    /**
+     * Samples cached outputs if present, otherwise defers to the budgeted application of the underlying operator
+     * without caching its partial output
+     */
+    @Override
+    public Stream<Pattern> apply(Pattern src, TypeContext ctx, int budget, SplittableRandom random) {
+        CanonicalForm form = canonicaliser.canonicalise(src);
+        Entry cached = cache.getIfPresent(new Key(form, ctx));
+        if (cached == null) return operator.apply(src, ctx, budget, random);
+        return Utils.sample(cached.outputs(src, form).stream(), budget, random).stream();
+    }
+
+    public long hits() { return cache.stats().hitCount(); }
+    public long misses() { return cache.stats().missCount(); }
+    public long evictions() { return cache.stats().evictionCount(); }
+    public long size() { return cache.size(); }
+
+    /**
+     * @return fraction of applications served from the cache, 1 if the operator has not been applied yet
+     */
+    public double hitRate() {
+        return cache.stats().hitRate();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (cached): %d hits, %d misses, %d evictions", operator, hits(), misses(), evictions());
+    }
+
+    private static class Key {
+        private final CanonicalForm form;
+        private final TypeContext ctx;
+        private final int hash;
+
+        Key(CanonicalForm form, TypeContext ctx) {
+            this.form = form;
+            this.ctx = ctx;
+            this.hash = 31 * form.hashCode() + System.identityHashCode(ctx);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return hash == that.hash && ctx == that.ctx && form.equals(that.form);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Outputs computed from one source pattern, with that pattern's variables by canonical name
+     */
+    private static class Entry {
+        private final List<Pattern> outputs;
+        private final Map<String, Variable> variables;
+
+        Entry(List<Pattern> outputs, Pattern src, CanonicalForm form) {
+            this.outputs = outputs;
+            this.variables = new HashMap<>();
+            for (Variable var : variables(src)) {
+                String canonical = form.variableMapping().get(var.name());
+                if (canonical != null) variables.put(canonical, var);
+            }
+        }
+
+        /**
+         * @return the outputs with the variables of the cached source renamed to those of an alpha-equivalent src
+         */
+        List<Pattern> outputs(Pattern src, CanonicalForm form) {
+            Map<Variable, Variable> renaming = new HashMap<>();
+            for (Variable var : variables(src)) {
+                String canonical = form.variableMapping().get(var.name());
+                Variable cachedVar = canonical != null ? variables.get(canonical) : null;
+                if (cachedVar != null && !cachedVar.equals(var)) renaming.put(cachedVar, var);
+            }
+            if (renaming.isEmpty()) return outputs;
+            return outputs.stream()
+                    .map(p -> Utils.renameVariables(p, renaming))
+                    .collect(Collectors.toList());
+        }
+
+        private static Set<Variable> variables(Pattern src) {
+            return src.statements().stream()
+                    .flatMap(s -> s.variables().stream())
+                    .collect(Collectors.toSet());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import com.google.common.hash.HashCode;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A pattern with its variables renamed into canonical order ($v0, $v1, ...) and its statements sorted, so that
+ * alpha-equivalent patterns have equal canonical forms. Equality and hashing go through a 128-bit structural hash
+ * first, so canonical forms can be used directly as O(1) deduplication keys.
+ */
+public class CanonicalForm {
+
+    private final String text;
+    private final HashCode hash;
+    private final Map<String, String> variableMapping;
+
+    CanonicalForm(String text, HashCode hash, Map<String, String> variableMapping) {
+        this.text = text;
+        this.hash = hash;
+        this.variableMapping = Collections.unmodifiableMap(variableMapping);
+    }
+
+    /**
+     * @return the canonical Graql text of the pattern
+     */
+    public String text() { return text; }
+
+    /**
+     * @return 128-bit murmur3 hash of the canonical text
+     */
+    public HashCode hash() { return hash; }
+
+    /**
+     * @return the first 64 bits of the structural hash
+     */
+    public long hash64() { return hash.asLong(); }
+
+    /**
+     * @return original variable name -> canonical variable name, without the leading `$`
+     */
+    public Map<String, String> variableMapping() { return variableMapping; }
+
+    @Override
+    public int hashCode() {
+        return (int) hash.asLong();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        CanonicalForm that = (CanonicalForm) obj;
+        return hash.equals(that.hash) && text.equals(that.text);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import graql.lang.pattern.Pattern;
+import graql.lang.statement.Statement;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+
+/**
+ * Computes canonical forms of conjunctive patterns, so that patterns equal up to renaming of variables
+ * (alpha-equivalent) map to the same CanonicalForm.
+ *
+ * Each statement is split on its variable tokens into a template. Variables are then coloured by colour refinement
+ * over the statement graph: a variable's colour is repeatedly replaced by the multiset of templates it occurs in,
+ * with every other variable written as its current colour, until the colouring stops getting finer. Variables that
+ * are still indistinguishable (symmetric patterns) are individualised one at a time, keeping the smallest resulting
+ * text. Individualisation is bounded by a branch budget; beyond it the first candidate is taken, which can only
+ * make two alpha-equivalent patterns with large symmetric groups hash differently, never make different patterns
+ * hash the same.
+ */
+public class Canonicaliser {
+
+    // a quoted string literal, which may contain `$`, or a variable
+    private static final java.util.regex.Pattern TOKEN = java.util.regex.Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"|\\$([a-zA-Z0-9_\\-]+)");
+    private static final String VARIABLE_PREFIX = "v";
+    private static final int DEFAULT_BRANCH_BUDGET = 64;
+
+    private final HashFunction hashFunction = Hashing.murmur3_128();
+    private final int branchBudget;
+
+    public Canonicaliser() {
+        this(DEFAULT_BRANCH_BUDGET);
+    }
+
+    /**
+     * @param branchBudget maximum number of complete individualisations tried per pattern
+     */
+    public Canonicaliser(int branchBudget) {
+        if (branchBudget < 1) throw new IllegalArgumentException("Branch budget must be at least 1");
+        this.branchBudget = branchBudget;
+    }
+
+    /**
+     * A statement split on its variables: literals[0] var[0] literals[1] ... var[n-1] literals[n]
+     */
+    private static class Template {
+        final List<String> literals = new ArrayList<>();
+        final List<Integer> variables = new ArrayList<>();
+    }
+
+    public CanonicalForm canonicalise(Pattern pattern) {
+        Map<String, Integer> variableIndex = new LinkedHashMap<>();
+        List<Template> templates = new ArrayList<>();
+        for (Statement statement : pattern.statements()) {
+            templates.add(template(statement.toString(), variableIndex));
+        }
+        int size = variableIndex.size();
+
+        // variable -> templates it occurs in
+        List<List<Template>> occurrences = new ArrayList<>();
+        for (int v = 0; v < size; v++) occurrences.add(new ArrayList<>());
+        for (Template template : templates) {
+            for (int v : template.variables) {
+                List<Template> occurring = occurrences.get(v);
+                if (occurring.isEmpty() || occurring.get(occurring.size() - 1) != template) occurring.add(template);
+            }
+        }
+
+        int[] colours = refine(new int[size], occurrences, templates);
+        int[] budget = {branchBudget};
+        int[] order = search(colours, occurrences, templates, budget);
+
+        String text = render(templates, order);
+        Map<String, String> mapping = new HashMap<>();
+        variableIndex.forEach((name, v) -> mapping.put(name, VARIABLE_PREFIX + order[v]));
+        return new CanonicalForm(text, hashFunction.hashString(text, StandardCharsets.UTF_8), mapping);
+    }
+
+    private static Template template(String statement, Map<String, Integer> variableIndex) {
+        Template template = new Template();
+        Matcher matcher = TOKEN.matcher(statement);
+        int last = 0;
+        StringBuilder literal = new StringBuilder();
+        while (matcher.find()) {
+            if (matcher.group(1) == null) continue; // string literal, kept verbatim
+            literal.append(statement, last, matcher.start());
+            template.literals.add(literal.toString());
+            literal.setLength(0);
+            template.variables.add(variableIndex.computeIfAbsent(matcher.group(1), name -> variableIndex.size()));
+            last = matcher.end();
+        }
+        literal.append(statement.substring(last));
+        template.literals.add(literal.toString());
+        return template;
+    }
+
+    /**
+     * Colour refinement to a stable colouring. Colours are dense ranks, so equal colourings of alpha-equivalent
+     * patterns are produced regardless of the original variable names.
+     */
+    private static int[] refine(int[] initial, List<List<Template>> occurrences, List<Template> templates) {
+        int[] colours = initial.clone();
+        int distinct = distinct(colours);
+        while (true) {
+            String[] signatures = new String[colours.length];
+            for (int v = 0; v < colours.length; v++) {
+                List<String> rendered = new ArrayList<>();
+                for (Template template : occurrences.get(v)) rendered.add(renderWithColours(template, colours, v));
+                Collections.sort(rendered);
+                signatures[v] = colours[v] + "|" + String.join("|", rendered);
+            }
+            int[] refined = rank(signatures);
+            int refinedDistinct = distinct(refined);
+            if (refinedDistinct == distinct) return colours;
+            colours = refined;
+            distinct = refinedDistinct;
+        }
+    }
+
+    /**
+     * Individualise variables of the first smallest tied colour class until the colouring is discrete, returning
+     * the discrete colouring (ie. the canonical position of every variable) that renders the smallest text
+     */
+    private static int[] search(int[] colours, List<List<Template>> occurrences, List<Template> templates, int[] budget) {
+        int tied = tiedColour(colours);
+        if (tied == -1) {
+            budget[0]--;
+            return colours;
+        }
+
+        int[] best = null;
+        String bestText = null;
+        for (int v = 0; v < colours.length; v++) {
+            if (colours[v] != tied) continue;
+            if (best != null && budget[0] <= 0) break;
+
+            // split v off its class: every colour doubles, v sorts just before the rest of its class
+            int[] individualised = new int[colours.length];
+            for (int u = 0; u < colours.length; u++) individualised[u] = 2 * colours[u] + (u == v ? 0 : 1);
+            int[] leaf = search(refine(rank(individualised), occurrences, templates), occurrences, templates, budget);
+
+            String text = render(templates, leaf);
+            if (bestText == null || text.compareTo(bestText) < 0) {
+                best = leaf;
+                bestText = text;
+            }
+        }
+        return best;
+    }
+
+    private static String render(List<Template> templates, int[] order) {
+        List<String> statements = new ArrayList<>();
+        for (Template template : templates) {
+            StringBuilder builder = new StringBuilder(template.literals.get(0));
+            for (int i = 0; i < template.variables.size(); i++) {
+                builder.append('$').append(VARIABLE_PREFIX).append(order[template.variables.get(i)]).append(template.literals.get(i + 1));
+            }
+            statements.add(builder.toString());
+        }
+        Collections.sort(statements);
+        return String.join(" ", statements);
+    }
+
+    private static String renderWithColours(Template template, int[] colours, int self) {
+        StringBuilder builder = new StringBuilder(template.literals.get(0));
+        for (int i = 0; i < template.variables.size(); i++) {
+            int v = template.variables.get(i);
+            builder.append(v == self ? "$@" : "$#" + colours[v]).append(template.literals.get(i + 1));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Dense ranks of the given keys: equal keys get equal ranks, and ranks follow the natural order of the keys
+     */
+    private static <T extends Comparable<T>> int[] rank(T[] keys) {
+        TreeMap<T, Integer> ranks = new TreeMap<>();
+        for (T key : keys) ranks.put(key, 0);
+        int next = 0;
+        for (Map.Entry<T, Integer> entry : ranks.entrySet()) entry.setValue(next++);
+        int[] ranked = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) ranked[i] = ranks.get(keys[i]);
+        return ranked;
+    }
+
+    private static int[] rank(int[] colours) {
+        Integer[] boxed = new Integer[colours.length];
+        for (int i = 0; i < colours.length; i++) boxed[i] = colours[i];
+        return rank(boxed);
+    }
+
+    private static int distinct(int[] colours) {
+        return (int) Arrays.stream(colours).distinct().count();
+    }
+
+    /**
+     * @return the smallest colour shared by the fewest (but at least two) variables, or -1 if the colouring is discrete
+     */
+    private static int tiedColour(int[] colours) {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        for (int colour : colours) counts.merge(colour, 1, Integer::sum);
+        int tied = -1;
+        int tiedCount = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1 && entry.getValue() < tiedCount) {
+                tied = entry.getKey();
+                tiedCount = entry.getValue();
+            }
+        }
+        return tied;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy cartesian product of a list of collections. Combinations are enumerated in the same order as
+ * Sets.cartesianProduct - the last collection varies fastest - but are never materialised up front.
+ *
+ * Each combination has an index in [0, size) so that the product can be ranked, unranked, split into index ranges
+ * for parallel streams and sampled uniformly. If the number of combinations does not fit in a long, the product
+ * can still be iterated and sampled but not indexed.
+ *
+ * @param <T> element type
+ */
+public class CartesianProduct<T> implements Iterable<List<T>> {
+
+    private final List<List<T>> axes;
+    private final List<Map<T, Integer>> positions;
+    private final long[] strides;
+    private final long size;
+    private final boolean indexable;
+
+    private CartesianProduct(List<List<T>> axes) {
+        this.axes = axes;
+        this.positions = new ArrayList<>(axes.size());
+        for (List<T> axis : axes) {
+            Map<T, Integer> position = new HashMap<>();
+            for (int i = 0; i < axis.size(); i++) position.put(axis.get(i), i);
+            positions.add(position);
+        }
+
+        this.strides = new long[axes.size()];
+        long product = 1;
+        boolean overflow = false;
+        boolean empty = false;
+        for (int i = axes.size() - 1; i >= 0; i--) {
+            strides[i] = product;
+            int axisSize = axes.get(i).size();
+            if (axisSize == 0) empty = true;
+            if (!overflow) {
+                try {
+                    product = Math.multiplyExact(product, axisSize);
+                } catch (ArithmeticException e) {
+                    overflow = true;
+                }
+            }
+        }
+        this.indexable = empty || !overflow;
+        this.size = empty ? 0 : product;
+    }
+
+    /**
+     * @param collections per-position alternatives, duplicates within a single collection are ignored
+     * @return product of the collections, containing a single empty list if no collections are given
+     */
+    public static <T> CartesianProduct<T> of(List<? extends Collection<? extends T>> collections) {
+        List<List<T>> axes = new ArrayList<>(collections.size());
+        for (Collection<? extends T> collection : collections) {
+            axes.add(Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(collection))));
+        }
+        return new CartesianProduct<>(axes);
+    }
+
+    /**
+     * @return true if every combination can be addressed by a long index
+     */
+    public boolean isIndexable() {
+        return indexable;
+    }
+
+    /**
+     * @return number of combinations
+     * @throws IllegalStateException if the number of combinations does not fit in a long
+     */
+    public long size() {
+        checkIndexable();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return indexable && size == 0;
+    }
+
+    /**
+     * @param index combination index in [0, size)
+     * @return combination at the given index
+     */
+    public List<T> get(long index) {
+        checkIndexable();
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of [0, " + size + ")");
+        return combination(digits(index));
+    }
+
+    /**
+     * @param combination candidate combination
+     * @return index of the combination, or -1 if it is not a member of this product
+     */
+    public long indexOf(List<?> combination) {
+        checkIndexable();
+        if (combination.size() != axes.size() || size == 0) return -1;
+        long index = 0;
+        for (int i = 0; i < axes.size(); i++) {
+            Integer position = positions.get(i).get(combination.get(i));
+            if (position == null) return -1;
+            index += position * strides[i];
+        }
+        return index;
+    }
+
+    @Override
+    public Iterator<List<T>> iterator() {
+        return new Odometer();
+    }
+
+    @Override
+    public Spliterator<List<T>> spliterator() {
+        if (indexable) return new IndexSpliterator(0, size);
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    public Stream<List<T>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Splits by index range, so that combinations are processed in balanced chunks without a shared iterator
+     */
+    public Stream<List<T>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Draws k distinct combinations uniformly at random. If the product is indexable, the draw uses Floyd's algorithm
+     * over indexes and the result is in index order. Otherwise each combination is drawn independently
+     * per position and duplicates are redrawn.
+     *
+     * @param k      number of combinations to draw
+     * @param random source of randomness
+     * @return at most k distinct combinations, all of them if the product has no more than k
+     */
+    public List<List<T>> sample(int k, SplittableRandom random) {
+        if (k < 0) throw new IllegalArgumentException("Sample size must be non-negative: " + k);
+        if (indexable) {
+            if (k >= size) return stream().collect(Collectors.toList());
+            Set<Long> chosen = new TreeSet<>();
+            for (long j = size - k; j < size; j++) {
+                long t = random.nextLong(j + 1);
+                if (!chosen.add(t)) chosen.add(j);
+            }
+            List<List<T>> sample = new ArrayList<>(k);
+            for (long index : chosen) sample.add(get(index));
+            return sample;
+        }
+
+        Set<List<Integer>> chosen = new LinkedHashSet<>();
+        List<List<T>> sample = new ArrayList<>(k);
+        while (sample.size() < k) {
+            int[] digits = new int[axes.size()];
+            for (int i = 0; i < digits.length; i++) digits[i] = random.nextInt(axes.get(i).size());
+            List<Integer> key = new ArrayList<>(digits.length);
+            for (int digit : digits) key.add(digit);
+            if (chosen.add(key)) sample.add(combination(digits));
+        }
+        return sample;
+    }
+
+    private void checkIndexable() {
+        if (!indexable) throw new IllegalStateException("Cartesian product has more than Long.MAX_VALUE combinations");
+    }
+
+    private int[] digits(long index) {
+        int[] digits = new int[axes.size()];
+        long remainder = index;
+        for (int i = 0; i < digits.length; i++) {
+            digits[i] = (int) (remainder / strides[i]);
+            remainder %= strides[i];
+        }
+        return digits;
+    }
+
+    private List<T> combination(int[] digits) {
+        Object[] values = new Object[digits.length];
+        for (int i = 0; i < digits.length; i++) values[i] = axes.get(i).get(digits[i]);
+        @SuppressWarnings("unchecked")
+        List<T> combination = (List<T>) Collections.unmodifiableList(Arrays.asList(values));
+        return combination;
+    }
+
+    /**
+     * Advances digits to the next combination, last position fastest
+     *
+     * @return false if the digits wrapped around past the last combination
+     */
+    private boolean increment(int[] digits) {
+        for (int i = digits.length - 1; i >= 0; i--) {
+            if (++digits[i] < axes.get(i).size()) return true;
+            digits[i] = 0;
+        }
+        return false;
+    }
+
+    private class Odometer implements Iterator<List<T>> {
+        private final int[] digits = new int[axes.size()];
+        private boolean hasNext = axes.stream().noneMatch(List::isEmpty);
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext) throw new NoSuchElementException();
+            List<T> next = combination(digits);
+            hasNext = increment(digits);
+            return next;
+        }
+    }
+
+    private class IndexSpliterator implements Spliterator<List<T>> {
+        private long from;
+        private final long to;
+        private int[] digits;
+
+        IndexSpliterator(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            if (from >= to) return false;
+            if (digits == null) digits = digits(from);
+            action.accept(combination(digits));
+            from++;
+            increment(digits);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super List<T>> action) {
+            if (from >= to) return;
+            if (digits == null) digits = digits(from);
+            for (; from < to; from++) {
+                action.accept(combination(digits));
+                increment(digits);
+            }
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            long mid = from + (to - from) / 2;
+            if (mid <= from) return null;
+            IndexSpliterator prefix = new IndexSpliterator(from, mid);
+            from = mid;
+            digits = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED
+                    | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+        }
+    }
+}
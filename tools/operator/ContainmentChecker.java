@@ -0,0 +1,263 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import grakn.client.GraknClient;
+import grakn.client.answer.ConceptMap;
+import grakn.verification.tools.operator.answer.AnswerSet;
+import grakn.verification.tools.operator.answer.ConceptDictionary;
+import graql.lang.Graql;
+import graql.lang.pattern.Pattern;
+import graql.lang.statement.Variable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Differential check of operator soundness against a live keyspace: if P' is a generalisation of P, every answer
+ * of P projected onto the variables the two patterns share must also be an answer of P'.
+ *
+ * Patterns are executed in their canonical form and the answers are cached per canonical form, so a pattern
+ * occurring in many generalisation pairs, or alpha-equivalent to another one, is queried once. Concept ids are
+ * encoded as dense ints shared by all queries of the checker and answers are held as compact AnswerSets.
+ *
+ * Answers and their projections share one cache bounded by weight, counted in answer cells: rows times arity. Once
+ * the bound is reached the least recently used answers are evicted and queried again when next needed.
+ */
+public class ContainmentChecker {
+
+    private static final long DEFAULT_MAXIMUM_WEIGHT = 10_000_000;
+
+    private final GraknClient.Session session;
+    private final Canonicaliser canonicaliser;
+    private final ConceptDictionary dictionary = new ConceptDictionary();
+    private final Cache<Key, Answers> answers;
+    private final LongAdder queries = new LongAdder();
+
+    public ContainmentChecker(GraknClient.Session session) {
+        this(session, new Canonicaliser());
+    }
+
+    public ContainmentChecker(GraknClient.Session session, Canonicaliser canonicaliser) {
+        this(session, canonicaliser, DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    /**
+     * @param maximumWeight number of answer cells, rows times arity, held by the cache of answers and projections
+     */
+    public ContainmentChecker(GraknClient.Session session, Canonicaliser canonicaliser, long maximumWeight) {
+        this.session = session;
+        this.canonicaliser = canonicaliser;
+        this.answers = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Key key, Answers value) -> value.weight())
+                .build();
+    }
+
+    /**
+     * Outcome of checking a single generalisation pair
+     */
+    public static class Result {
+        private final Pattern specific;
+        private final Pattern general;
+        private final List<String> variables;
+        private final List<List<String>> missing;
+
+        Result(Pattern specific, Pattern general, List<String> variables, List<List<String>> missing) {
+            this.specific = specific;
+            this.general = general;
+            this.variables = variables;
+            this.missing = missing;
+        }
+
+        public Pattern specific() { return specific; }
+        public Pattern general() { return general; }
+
+        /**
+         * @return names of the shared variables the answers were projected onto
+         */
+        public List<String> variables() { return variables; }
+
+        /**
+         * @return projected answers of the specific pattern that the general pattern does not have, as concept ids
+         * in the order of variables()
+         */
+        public List<List<String>> missing() { return missing; }
+
+        public boolean contained() { return missing.isEmpty(); }
+
+        @Override
+        public String toString() {
+            return contained() ?
+                    "contained: " + specific + " <= " + general :
+                    String.format("%d answers of %s over %s missing from %s, e.g. %s",
+                            missing.size(), specific, variables, general, missing.get(0));
+        }
+    }
+
+    /**
+     * @param specific pattern
+     * @param general  generalisation of the specific pattern
+     */
+    public Result check(Pattern specific, Pattern general) {
+        CanonicalForm specificForm = canonicaliser.canonicalise(specific);
+        CanonicalForm generalForm = canonicaliser.canonicalise(general);
+
+        Set<String> generalVariables = returnedVariables(general);
+        List<String> shared = returnedVariables(specific).stream()
+                .filter(generalVariables::contains)
+                .filter(name -> specificForm.variableMapping().containsKey(name))
+                .filter(name -> generalForm.variableMapping().containsKey(name))
+                .sorted()
+                .collect(Collectors.toList());
+
+        AnswerSet specificAnswers = answers(specificForm, canonical(shared, specificForm));
+        AnswerSet generalAnswers = answers(generalForm, canonical(shared, generalForm));
+        List<List<String>> missing = specificAnswers.isSubsetOf(generalAnswers) ?
+                Collections.emptyList() :
+                specificAnswers.difference(generalAnswers).decode(dictionary);
+        return new Result(specific, general, shared, missing);
+    }
+
+    /**
+     * Checks every edge of an explored lattice, parents being more specific than their children
+     *
+     * @return results of the edges whose containment does not hold
+     */
+    public List<Result> check(LatticeExplorer.Lattice lattice) {
+        return lattice.edges().stream()
+                .map(edge -> check(edge.parent().pattern(), edge.child().pattern()))
+                .filter(result -> !result.contained())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return number of queries executed against the keyspace
+     */
+    public long queries() {
+        return queries.sum();
+    }
+
+    private static Set<String> returnedVariables(Pattern pattern) {
+        return pattern.variables().stream()
+                .filter(Variable::isReturned)
+                .map(Variable::name)
+                .collect(Collectors.toSet());
+    }
+
+    private static List<String> canonical(List<String> names, CanonicalForm form) {
+        return names.stream().map(name -> form.variableMapping().get(name)).collect(Collectors.toList());
+    }
+
+    /**
+     * @return distinct answers of the pattern restricted to the given canonical variables
+     */
+    private AnswerSet answers(CanonicalForm form, List<String> variables) {
+        return cached(new Key(form, variables), () -> {
+            Answers all = cached(new Key(form, null), () -> execute(form));
+            AnswerSet projected = all.columns.containsAll(variables) ?
+                    all.rows.project(variables.stream().mapToInt(all.columns::indexOf).toArray()) :
+                    AnswerSet.builder(variables.size()).build();
+            return new Answers(variables, projected);
+        }).rows;
+    }
+
+    private Answers cached(Key key, Callable<Answers> loader) {
+        try {
+            return answers.get(key, loader);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Answers execute(CanonicalForm form) {
+        queries.increment();
+        try (GraknClient.Transaction tx = session.transaction().read()) {
+            // answers are encoded as they stream in, so only the compact rows are ever held in memory
+            Iterator<ConceptMap> results = tx.stream(Graql.parse("match " + form.text() + " get;").asGet()).iterator();
+            List<String> columns = Collections.emptyList();
+            AnswerSet.Builder rows = null;
+            while (results.hasNext()) {
+                ConceptMap result = results.next();
+                if (rows == null) {
+                    columns = result.map().keySet().stream().map(Variable::name).sorted().collect(Collectors.toList());
+                    rows = AnswerSet.builder(columns.size());
+                }
+                List<String> resultColumns = columns;
+                int[] row = new int[columns.size()];
+                result.map().forEach((var, concept) -> row[resultColumns.indexOf(var.name())] = dictionary.encode(concept.id().getValue()));
+                rows.add(row);
+            }
+            return new Answers(columns, rows != null ? rows.build() : AnswerSet.builder(0).build());
+        }
+    }
+
+    /**
+     * Cache key of the answers of a canonical pattern, projected onto the given canonical variables or, if they
+     * are null, over all of its variables
+     */
+    private static class Key {
+        private final CanonicalForm form;
+        private final List<String> variables;
+
+        Key(CanonicalForm form, List<String> variables) {
+            this.form = form;
+            this.variables = variables;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return form.equals(that.form) && Objects.equals(variables, that.variables);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(form, variables);
+        }
+    }
+
+    /**
+     * Answers of a canonical pattern over the given canonical variables
+     */
+    private static class Answers {
+        private final List<String> columns;
+        private final AnswerSet rows;
+
+        Answers(List<String> columns, AnswerSet rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        int weight() {
+            return (int) Math.min(Integer.MAX_VALUE, 1 + rows.size() * Math.max(1, columns.size()));
+        }
+    }
+}
@@ -19,7 +19,7 @@
 package grakn.verification.tools.operator;
 
 import com.google.common.collect.Sets;
-import grakn.verification.tools.operator.range.Range;
+import grakn.verification.tools.operator.range.NumberRange;
 import grakn.verification.tools.operator.range.Ranges;
 import graql.lang.Graql;
 import graql.lang.pattern.Pattern;
@@ -33,21 +33,25 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 //TODO: this assumes there is no stray value properties (not attached to HasAttributeProperty)
 //TODO: we currently only convert Number attributes
-public class GeneraliseAttributeOperator implements Operator{
+public class GeneraliseAttributeOperator extends ProductOperator {
 
     @Override
-    public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
-        List<Set<Statement>> transformedStatements = src.statements().stream()
-                .map(this::transformStatement)
+    protected List<Set<Statement>> alternatives(PatternIndex src, TypeContext ctx, SplittableRandom random) {
+        return src.statements().stream()
+                .map(s -> transformStatement(s, src))
                 .collect(Collectors.toList());
-        return Sets.cartesianProduct(transformedStatements).stream()
-                .map(Graql::and)
-                .filter(p -> !p.equals(src))
+    }
+
+    @Override
+    protected Stream<Pattern> curate(Stream<Pattern> candidates, PatternIndex src) {
+        return candidates
+                .filter(p -> !p.equals(src.pattern()))
                 .map(p -> Graql.and(
                         p.statements().stream()
                                 .filter(st -> !st.properties().isEmpty())
@@ -56,9 +60,9 @@ public class GeneraliseAttributeOperator implements Operator{
                 );
     }
 
-    private Set<Statement> transformStatement(Statement src){
+    private Set<Statement> transformStatement(Statement src, PatternIndex index){
         Variable var = src.var();
-        Set<HasAttributeProperty> attributes = src.getProperties(HasAttributeProperty.class).collect(Collectors.toSet());
+        Set<HasAttributeProperty> attributes = index.attributes(src);
         if (attributes.isEmpty()) return Sets.newHashSet(src);
 
         Set<HasAttributeProperty> transformedProps = attributes.stream()
@@ -82,10 +86,10 @@ public class GeneraliseAttributeOperator implements Operator{
         LinkedHashSet<VarProperty> properties = src.attribute().properties().stream()
                 .filter(p -> !(p instanceof ValueProperty))
                 .collect(Collectors.toCollection(LinkedHashSet::new));
-        Range range = src.attribute().getProperties(ValueProperty.class)
+        NumberRange range = src.attribute().getProperties(ValueProperty.class)
                 .map(Ranges::create)
                 .filter(Objects::nonNull)
-                .reduce(Range::merge)
+                .reduce(NumberRange::intersect)
                 .orElse(null);
         if (range == null) return src;
 
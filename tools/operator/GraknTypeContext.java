@@ -0,0 +1,270 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import grakn.client.GraknClient;
+import grakn.client.answer.ConceptMap;
+import graql.lang.Graql;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Type context backed by the schema of a Grakn keyspace. The type and role hierarchies are read with a single
+ * query and held in arrays indexed by a dense type id, so hierarchy lookups never go to the server.
+ *
+ * The hierarchy is an immutable snapshot swapped atomically on refresh. Refreshing re-reads the direct sub edges
+ * and only touches the types whose parent changed: ids of existing types are stable, new types are appended and
+ * removed types are retired in place. A refresh that finds no change keeps the current snapshot.
+ *
+ * Instance ids are served from an InstanceIdPool, so fuzzing operators do not query the server per id. Its
+ * background refills block on the server, so they run on their own executor rather than on the pool running the
+ * operators.
+ */
+public class GraknTypeContext implements TypeContext {
+
+    private static final Set<String> META_TYPES = ImmutableSet.of("thing", "entity", "relation", "attribute", "role");
+    private static final int INSTANCE_ID_BATCH = 1000;
+    private static final Executor INSTANCE_ID_REFILLS = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("instance-id-refill-%d").setDaemon(true).build());
+
+    private final GraknClient.Session session;
+    private final InstanceIdPool instanceIds;
+    private volatile Hierarchy hierarchy;
+
+    /**
+     * Refills instance ids on a single daemon thread shared by all contexts
+     */
+    public GraknTypeContext(GraknClient.Session session) {
+        this(session, INSTANCE_ID_REFILLS);
+    }
+
+    /**
+     * @param session session to the keyspace whose schema and instances are read
+     * @param refills runs background refills of instance ids, these hold a read transaction open
+     */
+    public GraknTypeContext(GraknClient.Session session, Executor refills) {
+        this.session = session;
+        this.instanceIds = new InstanceIdPool(this::readInstanceIds, INSTANCE_ID_BATCH, refills);
+        this.hierarchy = Hierarchy.EMPTY.update(readSups());
+    }
+
+    /**
+     * Re-reads the schema and applies the differences to the current hierarchy
+     *
+     * @return true if the schema changed since the last load
+     */
+    public synchronized boolean refresh() {
+        Hierarchy current = hierarchy;
+        Hierarchy updated = current.update(readSups());
+        if (updated == current) return false;
+        hierarchy = updated;
+        return true;
+    }
+
+    @Override
+    public boolean isMetaType(String label) {
+        Hierarchy h = hierarchy;
+        int id = h.id(label);
+        return id != Hierarchy.NONE && h.meta[id];
+    }
+
+    @Override
+    public String sup(String label) {
+        Hierarchy h = hierarchy;
+        int id = h.id(label);
+        if (id == Hierarchy.NONE || h.parent[id] == Hierarchy.NONE) return null;
+        return h.labels[h.parent[id]];
+    }
+
+    @Override
+    public Stream<String> sups(String label) {
+        Hierarchy h = hierarchy;
+        List<String> sups = new ArrayList<>();
+        int id = h.id(label);
+        while (id != Hierarchy.NONE && h.parent[id] != Hierarchy.NONE) {
+            id = h.parent[id];
+            sups.add(h.labels[id]);
+        }
+        return sups.stream();
+    }
+
+    @Override
+    public Stream<String> subs(String label) {
+        Hierarchy h = hierarchy;
+        int id = h.id(label);
+        if (id == Hierarchy.NONE) return Stream.empty();
+        List<String> subs = new ArrayList<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int child : h.children[id]) stack.push(child);
+        while (!stack.isEmpty()) {
+            int next = stack.pop();
+            subs.add(h.labels[next]);
+            for (int child : h.children[next]) stack.push(child);
+        }
+        return subs.stream();
+    }
+
+    @Override
+    public String instanceId() {
+        return instanceIds.next("thing");
+    }
+
+    @Override
+    public String instanceId(SplittableRandom random) {
+        return instanceIds.next("thing", random);
+    }
+
+    /**
+     * @return id of an instance of the given type, sampled from a prefetched pool
+     */
+    public String instanceId(String type) {
+        return instanceIds.next(type);
+    }
+
+    /**
+     * @return direct super type of every schema concept that has one, keyed by label
+     */
+    private Map<String, String> readSups() {
+        Map<String, String> sups = new HashMap<>();
+        try (GraknClient.Transaction tx = session.transaction().read()) {
+            List<ConceptMap> answers = tx.execute(Graql.parse("match $x sub! $y; get;").asGet());
+            for (ConceptMap answer : answers) {
+                String child = answer.get("x").asSchemaConcept().label().toString();
+                String parent = answer.get("y").asSchemaConcept().label().toString();
+                if (!child.equals(parent)) sups.put(child, parent);
+            }
+        }
+        return sups;
+    }
+
+    private void readInstanceIds(String type, Consumer<String> ids) {
+        try (GraknClient.Transaction tx = session.transaction().read()) {
+            tx.stream(Graql.parse(String.format("match $x isa %s; get $x;", type)).asGet())
+                    .forEach(answer -> ids.accept(answer.get("x").id().getValue()));
+        }
+    }
+
+    /**
+     * Immutable snapshot of the type hierarchy over dense type ids
+     */
+    private static class Hierarchy {
+        static final int NONE = -1;
+        static final int[] LEAF = new int[0];
+        static final Hierarchy EMPTY = new Hierarchy(
+                Collections.emptyMap(), new String[0], new int[0], new int[0][], new boolean[0], new boolean[0]);
+
+        private final Map<String, Integer> ids;
+        private final String[] labels;
+        private final int[] parent;
+        private final int[][] children;
+        private final boolean[] meta;
+        private final boolean[] live;
+
+        Hierarchy(Map<String, Integer> ids, String[] labels, int[] parent, int[][] children, boolean[] meta, boolean[] live) {
+            this.ids = ids;
+            this.labels = labels;
+            this.parent = parent;
+            this.children = children;
+            this.meta = meta;
+            this.live = live;
+        }
+
+        int id(String label) {
+            Integer id = ids.get(label);
+            return id != null && live[id] ? id : NONE;
+        }
+
+        /**
+         * @param sups direct super type of every type that has one
+         * @return this hierarchy if nothing changed, otherwise a new snapshot sharing the ids of this one
+         */
+        Hierarchy update(Map<String, String> sups) {
+            Set<String> present = new HashSet<>(sups.keySet());
+            present.addAll(sups.values());
+
+            List<String> added = present.stream()
+                    .filter(label -> !ids.containsKey(label))
+                    .sorted()
+                    .collect(Collectors.toList());
+            int size = labels.length + added.size();
+            Map<String, Integer> newIds = new HashMap<>(ids);
+            String[] newLabels = Arrays.copyOf(labels, size);
+            boolean[] newMeta = Arrays.copyOf(meta, size);
+            for (int i = 0; i < added.size(); i++) {
+                int id = labels.length + i;
+                newIds.put(added.get(i), id);
+                newLabels[id] = added.get(i);
+                newMeta[id] = META_TYPES.contains(added.get(i));
+            }
+
+            int[] newParent = Arrays.copyOf(parent, size);
+            Arrays.fill(newParent, labels.length, size, NONE);
+            boolean[] newLive = Arrays.copyOf(live, size);
+            Set<Integer> affectedParents = new HashSet<>();
+            Map<Integer, List<Integer>> movedChildren = new HashMap<>();
+            boolean changed = false;
+            for (int id = 0; id < size; id++) {
+                String label = newLabels[id];
+                boolean alive = present.contains(label);
+                int sup = alive && sups.containsKey(label) ? newIds.get(sups.get(label)) : NONE;
+                if (alive == newLive[id] && sup == newParent[id]) continue;
+
+                changed = true;
+                if (newParent[id] != NONE) affectedParents.add(newParent[id]);
+                if (sup != NONE) {
+                    affectedParents.add(sup);
+                    movedChildren.computeIfAbsent(sup, p -> new ArrayList<>()).add(id);
+                }
+                newParent[id] = sup;
+                newLive[id] = alive;
+            }
+            if (!changed) return this;
+
+            int[][] newChildren = Arrays.copyOf(children, size);
+            for (int id = 0; id < size; id++) {
+                if (id >= labels.length || !newLive[id]) newChildren[id] = LEAF;
+            }
+            for (int p : affectedParents) {
+                Set<Integer> kids = new HashSet<>(movedChildren.getOrDefault(p, Collections.emptyList()));
+                for (int child : newChildren[p]) {
+                    if (newParent[child] == p) kids.add(child);
+                }
+                newChildren[p] = kids.stream().mapToInt(Integer::intValue).sorted().toArray();
+            }
+            return new Hierarchy(newIds, newLabels, newParent, newChildren, newMeta, newLive);
+        }
+    }
+}
@@ -28,23 +28,33 @@ import graql.lang.statement.Variable;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class IdFuzzyingOperator implements Operator{
+public class IdFuzzyingOperator extends ProductOperator {
 
     @Override
-    public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
-        if (!src.statements().stream().flatMap(s -> s.getProperties(IdProperty.class)).findFirst().isPresent()){
-            return Stream.of(src);
-        }
+    protected List<Set<Statement>> alternatives(PatternIndex src, TypeContext ctx, SplittableRandom random) {
+        if (!src.hasIds()) return null;
+        return src.statements().stream()
+                .map(s -> transformStatement(s, src, ctx, random))
+                .collect(Collectors.toList());
+    }
 
-        List<Set<Statement>> transformedStatements = src.statements().stream()
-                .map(p -> transformStatement(p, ctx))
+    @Override
+    protected List<Integer> alternativeCounts(PatternIndex src, TypeContext ctx) {
+        if (!src.hasIds()) return null;
+        // the statement itself plus one fuzzed copy per id, counted without drawing ids from the context
+        return src.statements().stream()
+                .map(s -> 1 + src.ids(s).size())
                 .collect(Collectors.toList());
-        return Sets.cartesianProduct(transformedStatements).stream()
-                .map(Graql::and)
-                .filter(p -> !p.equals(src))
+    }
+
+    @Override
+    protected Stream<Pattern> curate(Stream<Pattern> candidates, PatternIndex src) {
+        return candidates
+                .filter(p -> !p.equals(src.pattern()))
                 .map(p -> Graql.and(
                         p.statements().stream()
                                 .filter(st -> !st.properties().isEmpty())
@@ -53,9 +63,9 @@ public class IdFuzzyingOperator implements Operator{
                 );
     }
 
-    private Set<Statement> transformStatement(Statement src, TypeContext ctx){
+    private Set<Statement> transformStatement(Statement src, PatternIndex index, TypeContext ctx, SplittableRandom random){
         Variable var = src.var();
-        Set<IdProperty> ids = src.getProperties(IdProperty.class).collect(Collectors.toSet());
+        Set<IdProperty> ids = index.ids(src);
         if (ids.isEmpty()) return Sets.newHashSet(src);
 
         Set<Statement> transformedStatements = Sets.newHashSet(src);
@@ -63,7 +73,7 @@ public class IdFuzzyingOperator implements Operator{
                 .map(idProp -> {
                     LinkedHashSet<VarProperty> properties = new LinkedHashSet<>(src.properties());
                     properties.remove(idProp);
-                    properties.add(new IdProperty(ctx.instanceId()));
+                    properties.add(new IdProperty(ctx.instanceId(random)));
                     return Statement.create(var, properties);
                 })
                 .forEach(transformedStatements::add);
@@ -0,0 +1,216 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pool of prefetched instance ids, per type. Each batch is a uniform reservoir sample of the ids of the type, read
+ * in one pass over the source. Ids are handed out from the current batch through an atomic cursor, so concurrent
+ * operator threads never block on each other. Once half of a batch has been handed out, a replacement is sampled
+ * in the background; until it arrives the current batch keeps being cycled through. If sampling fails, the failure
+ * is logged and the next id handed out from the batch tries again.
+ *
+ * Sampling reads every id of the type, so for large types the batch is handed out for longer before it is replaced:
+ * a batch sampled from N ids is replaced only after N / READS_PER_DRAW draws, bounding the ids read per draw.
+ *
+ * Only the first request for a type waits for its batch to be loaded.
+ */
+public class InstanceIdPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstanceIdPool.class);
+    private static final int READS_PER_DRAW = 100;
+
+    /**
+     * Source of instance ids, typically a streamed query
+     */
+    public interface Source {
+        void forEach(String type, Consumer<String> ids);
+    }
+
+    private final Source source;
+    private final int batchSize;
+    private final Executor executor;
+    private final Map<String, CompletableFuture<Slot>> slots = new ConcurrentHashMap<>();
+    private final LongAdder refills = new LongAdder();
+
+    /**
+     * @param source    where ids are read from
+     * @param batchSize number of ids sampled per batch
+     * @param executor  runs background refills
+     */
+    public InstanceIdPool(Source source, int batchSize, Executor executor) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        this.source = source;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * @param type label of the type the id should be an instance of
+     * @return id of an instance of the type, null if the type has no instances
+     */
+    public String next(String type) {
+        return slot(type).next(type);
+    }
+
+    /**
+     * Picks the id from the current batch with the given source of randomness rather than the shared cursor, so
+     * the choice of position replays with the random source. Which ids the batch holds still depends on when
+     * background refills land, so replays are only exact against an unchanged batch.
+     *
+     * @param type   label of the type the id should be an instance of
+     * @param random source of randomness picking the position in the batch
+     * @return id of an instance of the type, null if the type has no instances
+     */
+    public String next(String type, SplittableRandom random) {
+        return slot(type).next(type, random);
+    }
+
+    /**
+     * @return number of batches sampled so far, including initial loads
+     */
+    public long refills() {
+        return refills.sum();
+    }
+
+    /**
+     * The initial load runs on the calling thread outside of the map, so loading a type never holds a lock that
+     * other types hash to. Concurrent first requests for the same type wait on the one load; a failed load is
+     * removed so the next request tries again.
+     */
+    private Slot slot(String type) {
+        CompletableFuture<Slot> slot = slots.get(type);
+        if (slot == null) {
+            CompletableFuture<Slot> load = new CompletableFuture<>();
+            slot = slots.putIfAbsent(type, load);
+            if (slot == null) {
+                try {
+                    Slot loaded = new Slot(sample(type));
+                    load.complete(loaded);
+                    return loaded;
+                } catch (RuntimeException e) {
+                    slots.remove(type, load);
+                    load.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        return slot.join();
+    }
+
+    private Batch sample(String type) {
+        refills.increment();
+        String[] reservoir = new String[batchSize];
+        long[] seen = {0};
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        source.forEach(type, id -> {
+            long n = seen[0]++;
+            if (n < batchSize) {
+                reservoir[(int) n] = id;
+            } else {
+                long j = random.nextLong(n + 1);
+                if (j < batchSize) reservoir[(int) j] = id;
+            }
+        });
+        int size = (int) Math.min(seen[0], batchSize);
+        String[] batch = new String[size];
+        System.arraycopy(reservoir, 0, batch, 0, size);
+        // the first batchSize ids fill the reservoir in source order
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = batch[i];
+            batch[i] = batch[j];
+            batch[j] = tmp;
+        }
+        return new Batch(batch, seen[0]);
+    }
+
+    private class Slot {
+        private final AtomicReference<Batch> batch;
+
+        Slot(Batch batch) {
+            this.batch = new AtomicReference<>(batch);
+        }
+
+        String next(String type) {
+            Batch current = batch.get();
+            if (current.ids.length == 0) return null;
+            int position = current.cursor.getAndIncrement();
+            if (position >= current.refillAfter) refill(type, current);
+            return current.ids[Math.floorMod(position, current.ids.length)];
+        }
+
+        String next(String type, SplittableRandom random) {
+            Batch current = batch.get();
+            if (current.ids.length == 0) return null;
+            // still advance the cursor so that seeded draws trigger refills like unseeded ones
+            int position = current.cursor.getAndIncrement();
+            if (position >= current.refillAfter) refill(type, current);
+            return current.ids[random.nextInt(current.ids.length)];
+        }
+
+        /**
+         * Replace the given batch at most once; a failed replacement re-arms the batch so a later draw retries it
+         */
+        private void refill(String type, Batch current) {
+            if (!current.refilling.compareAndSet(false, true)) return;
+            CompletableFuture
+                    .supplyAsync(() -> sample(type), executor)
+                    .whenComplete((replacement, error) -> {
+                        if (error != null) {
+                            LOG.warn("Could not refill instance ids of {}, retrying on the next draw", type, error);
+                            current.refilling.set(false);
+                        } else {
+                            batch.set(replacement);
+                        }
+                    });
+        }
+    }
+
+    private static class Batch {
+        private final String[] ids;
+        private final int refillAfter;
+        private final AtomicInteger cursor = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+        /**
+         * @param ids        sampled ids
+         * @param population number of ids the sample was drawn from
+         */
+        Batch(String[] ids, long population) {
+            this.ids = ids;
+            long refillAfter = Math.max(ids.length / 2, population / READS_PER_DRAW);
+            this.refillAfter = (int) Math.min(refillAfter, Integer.MAX_VALUE / 2);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import graql.lang.pattern.Pattern;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Explores the generalisation lattice spanned by a set of operators. Starting from a seed pattern, every operator
+ * is applied to every pattern of the current level and the new patterns form the next level. Levels are expanded
+ * in parallel over a fork-join pool.
+ *
+ * Patterns are identified by their canonical form, so alpha-equivalent patterns reached along different paths
+ * are a single node. Every operator application that leads from one node to a different one is recorded as an
+ * edge, including edges into nodes that were already visited, so the result is the generalisation DAG rather than
+ * a search tree. An operator reaching the same child from the same parent along several outputs is one edge.
+ *
+ * Randomised operators draw from a source of randomness derived from the explorer's random seed, the operator and
+ * the canonical form of the expanded node. Explorations with the same randomSeed replay exactly on a single-worker
+ * pool; with more workers, which pattern represents a node reached from several parents depends on scheduling.
+ *
+ * Example:
+ *
+ * LatticeExplorer.builder()
+ *      .operator(Operators.removeSubstitution())
+ *      .operator(Operators.typeGeneralise())
+ *      .maxDepth(3)
+ *      .build()
+ *      .explore(seed, ctx);
+ */
+public class LatticeExplorer {
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    public static class Node {
+        private final CanonicalForm form;
+        private final Pattern pattern;
+        private final int depth;
+
+        Node(CanonicalForm form, Pattern pattern, int depth) {
+            this.form = form;
+            this.pattern = pattern;
+            this.depth = depth;
+        }
+
+        public CanonicalForm form() { return form; }
+
+        /**
+         * @return the first pattern found with this canonical form
+         */
+        public Pattern pattern() { return pattern; }
+
+        /**
+         * @return length of the shortest operator path from the seed
+         */
+        public int depth() { return depth; }
+
+        @Override
+        public String toString() {
+            return depth + ": " + pattern;
+        }
+    }
+
+    public static class Edge {
+        private final Node parent;
+        private final Node child;
+        private final int operator;
+
+        Edge(Node parent, Node child, int operator) {
+            this.parent = parent;
+            this.child = child;
+            this.operator = operator;
+        }
+
+        public Node parent() { return parent; }
+        public Node child() { return child; }
+
+        /**
+         * @return index of the operator in the order the operators were added to the builder
+         */
+        public int operator() { return operator; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Edge that = (Edge) o;
+            return operator == that.operator
+                    && parent.form().equals(that.parent.form())
+                    && child.form().equals(that.child.form());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parent.form(), child.form(), operator);
+        }
+
+        @Override
+        public String toString() {
+            return parent.form().hash() + " -[#" + operator + "]-> " + child.form().hash();
+        }
+    }
+
+    /**
+     * Result of an exploration
+     */
+    public static class Lattice {
+        private final Node root;
+        private final Map<CanonicalForm, Node> nodes;
+        private final List<Edge> edges;
+        private final boolean truncated;
+
+        Lattice(Node root, Map<CanonicalForm, Node> nodes, List<Edge> edges, boolean truncated) {
+            this.root = root;
+            this.nodes = nodes;
+            this.edges = edges;
+            this.truncated = truncated;
+        }
+
+        public Node root() { return root; }
+        public Collection<Node> nodes() { return Collections.unmodifiableCollection(nodes.values()); }
+        public List<Edge> edges() { return Collections.unmodifiableList(edges); }
+
+        public Node node(CanonicalForm form) {
+            return nodes.get(form);
+        }
+
+        public List<Node> level(int depth) {
+            return nodes.values().stream().filter(n -> n.depth() == depth).collect(Collectors.toList());
+        }
+
+        public List<Edge> children(Node parent) {
+            return edges.stream().filter(e -> e.parent() == parent).collect(Collectors.toList());
+        }
+
+        /**
+         * @return true if the node limit stopped the exploration before the depth limit or a fixpoint was reached
+         */
+        public boolean truncated() { return truncated; }
+    }
+
+    private final List<Operator> operators;
+    private final Canonicaliser canonicaliser;
+    private final ForkJoinPool pool;
+    private final int maxDepth;
+    private final int maxNodes;
+    private final int budget;
+    private final long randomSeed;
+
+    private LatticeExplorer(List<Operator> operators, Canonicaliser canonicaliser, ForkJoinPool pool,
+                            int maxDepth, int maxNodes, int budget, long randomSeed) {
+        this.operators = operators;
+        this.canonicaliser = canonicaliser;
+        this.pool = pool;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.budget = budget;
+        this.randomSeed = randomSeed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return seed from which all random choices of the explorer are derived
+     */
+    public long randomSeed() {
+        return randomSeed;
+    }
+
+    public Lattice explore(Pattern seed, TypeContext ctx) {
+        Map<CanonicalForm, Node> visited = new ConcurrentHashMap<>();
+        Set<Edge> edges = ConcurrentHashMap.newKeySet();
+        AtomicInteger size = new AtomicInteger(1);
+        AtomicBoolean truncated = new AtomicBoolean(false);
+
+        Node root = new Node(canonicaliser.canonicalise(seed), seed, 0);
+        visited.put(root.form(), root);
+        List<Node> frontier = Collections.singletonList(root);
+        for (int depth = 1; depth <= maxDepth && !frontier.isEmpty() && !truncated.get(); depth++) {
+            int childDepth = depth;
+            List<Node> parents = frontier;
+            frontier = pool.submit(() -> parents.parallelStream()
+                    .flatMap(parent -> expand(parent, childDepth, ctx, visited, edges, size, truncated))
+                    .collect(Collectors.toList())
+            ).join();
+        }
+        return new Lattice(root, visited, new ArrayList<>(edges), truncated.get());
+    }
+
+    /**
+     * @return nodes first discovered while expanding the parent
+     */
+    private Stream<Node> expand(Node parent, int depth, TypeContext ctx, Map<CanonicalForm, Node> visited,
+                                Set<Edge> edges, AtomicInteger size, AtomicBoolean truncated) {
+        List<Node> discovered = new ArrayList<>();
+        for (int i = 0; i < operators.size(); i++) {
+            Operator operator = operators.get(i);
+            int operatorIndex = i;
+            SplittableRandom random = Utils.random(Utils.random(randomSeed, i).nextLong(), parent.form().hashCode());
+            Stream<Pattern> outputs = budget == UNBOUNDED ?
+                    operator.apply(parent.pattern(), ctx, random) :
+                    operator.apply(parent.pattern(), ctx, budget, random);
+            outputs.forEach(output -> {
+                CanonicalForm form = canonicaliser.canonicalise(output);
+                if (form.equals(parent.form())) return;
+
+                Node child = visited.get(form);
+                if (child == null) {
+                    if (size.incrementAndGet() > maxNodes) {
+                        size.decrementAndGet();
+                        truncated.set(true);
+                        return;
+                    }
+                    Node candidate = new Node(form, output, depth);
+                    child = visited.putIfAbsent(form, candidate);
+                    if (child == null) {
+                        child = candidate;
+                        discovered.add(candidate);
+                    } else {
+                        size.decrementAndGet();
+                    }
+                }
+                edges.add(new Edge(parent, child, operatorIndex));
+            });
+        }
+        return discovered.stream();
+    }
+
+    public static class Builder {
+        private final List<Operator> operators = new ArrayList<>();
+        private Canonicaliser canonicaliser = new Canonicaliser();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int maxDepth = UNBOUNDED;
+        private int maxNodes = UNBOUNDED;
+        private int budget = UNBOUNDED;
+        private long randomSeed = new SplittableRandom().nextLong();
+
+        public Builder operator(Operator operator) {
+            operators.add(operator);
+            return this;
+        }
+
+        public Builder operators(Collection<Operator> operators) {
+            this.operators.addAll(operators);
+            return this;
+        }
+
+        public Builder canonicaliser(Canonicaliser canonicaliser) {
+            this.canonicaliser = canonicaliser;
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Patterns further than maxDepth operator applications from the seed are not explored
+         */
+        public Builder maxDepth(int maxDepth) {
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * At most maxNodes nodes are recorded - once the limit is hit, no level after the current one is expanded
+         */
+        public Builder maxNodes(int maxNodes) {
+            this.maxNodes = maxNodes;
+            return this;
+        }
+
+        /**
+         * Caps the number of outputs of a single operator application, see Operator.apply(Pattern, TypeContext, int)
+         */
+        public Builder budget(int budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Fixes the seed of the explorer's random choices, e.g. to replay an exploration reported by randomSeed().
+         * By default a fresh seed is drawn for every built explorer.
+         */
+        public Builder randomSeed(long randomSeed) {
+            this.randomSeed = randomSeed;
+            return this;
+        }
+
+        public LatticeExplorer build() {
+            return new LatticeExplorer(new ArrayList<>(operators), canonicaliser, pool, maxDepth, maxNodes, budget,
+                    randomSeed);
+        }
+    }
+}
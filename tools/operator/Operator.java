@@ -20,6 +20,7 @@ package grakn.verification.tools.operator;
 
 import graql.lang.pattern.Pattern;
 
+import java.util.SplittableRandom;
 import java.util.stream.Stream;
 
 
@@ -38,4 +39,49 @@ public interface Operator {
      * @return set of patterns resulting from operator application
      */
     Stream<Pattern> apply(Pattern src, TypeContext ctx);
+
+    /**
+     * Application driven by the given source of randomness, so that randomised operators can be replayed from
+     * a seed. Deterministic operators ignore it.
+     *
+     * @param src    pattern to be transformed
+     * @param ctx    type context for patterns
+     * @param random source of randomness, not shared with other threads
+     * @return set of patterns resulting from operator application
+     */
+    default Stream<Pattern> apply(Pattern src, TypeContext ctx, SplittableRandom random) {
+        return apply(src, ctx);
+    }
+
+    /**
+     * Upper bound on the number of patterns produced by apply. By default the operator is applied and its outputs
+     * counted - operators that can bound their output without enumerating it should override this.
+     *
+     * @param src pattern to be transformed
+     * @param ctx type context for patterns
+     * @return upper bound on the output size, Long.MAX_VALUE if the bound does not fit in a long
+     */
+    default long estimate(Pattern src, TypeContext ctx) {
+        return apply(src, ctx).count();
+    }
+
+    /**
+     * Budgeted application: if the operator would produce more than budget patterns, a uniform random sample of
+     * at most budget of them is returned instead.
+     *
+     * @param src    pattern to be transformed
+     * @param ctx    type context for patterns
+     * @param budget maximum number of patterns to return
+     * @return at most budget patterns resulting from operator application
+     */
+    default Stream<Pattern> apply(Pattern src, TypeContext ctx, int budget) {
+        return apply(src, ctx, budget, new SplittableRandom());
+    }
+
+    /**
+     * Budgeted application with both the operator and the sampling driven by the given source of randomness
+     */
+    default Stream<Pattern> apply(Pattern src, TypeContext ctx, int budget, SplittableRandom random) {
+        return Utils.sample(apply(src, ctx, random), budget, random).stream();
+    }
 }
@@ -0,0 +1,217 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import graql.lang.pattern.Pattern;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Composes operators into a sequence of stages. Each stage applies its operator to every pattern produced by the
+ * previous stage, in parallel over a fork-join pool, and removes duplicate outputs with a concurrent seen-set
+ * before handing them to the next stage.
+ *
+ * Operators and the type context must be safe to call from several threads at once.
+ *
+ * Randomised operators draw from a source of randomness derived from the pipeline's random seed, the stage and the
+ * input pattern, so a run can be replayed by building the pipeline with the same randomSeed. Replays are exact
+ * as long as the type context is deterministic and, with a custom dedupKey, the pool has a single worker -
+ * otherwise which of several duplicates survives a stage depends on thread scheduling.
+ *
+ * Example:
+ *
+ * OperatorPipeline.builder()
+ *      .stage(Operators.removeSubstitution())
+ *      .stage(Operators.typeGeneralise())
+ *      .build()
+ *      .apply(seeds, ctx);
+ */
+public class OperatorPipeline {
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * A single operator application step, with counters that may be read while the pipeline is running
+     */
+    public static class Stage {
+        private final String name;
+        private final Operator operator;
+        private final LongAdder inputs = new LongAdder();
+        private final LongAdder outputs = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        Stage(String name, Operator operator) {
+            this.name = name;
+            this.operator = operator;
+        }
+
+        public String name() { return name; }
+        public long inputs() { return inputs.sum(); }
+        public long outputs() { return outputs.sum(); }
+        public long duplicates() { return duplicates.sum(); }
+        public long elapsedNanos() { return nanos.sum(); }
+
+        /**
+         * Output patterns per second of wall clock time spent in this stage
+         */
+        public double throughput() {
+            long elapsed = nanos.sum();
+            return elapsed == 0 ? 0 : outputs.sum() * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d in, %d out (%d duplicates), %.0f patterns/s",
+                    name, inputs(), outputs(), duplicates(), throughput());
+        }
+    }
+
+    private final List<Stage> stages;
+    private final ForkJoinPool pool;
+    private final Function<Pattern, Object> dedupKey;
+    private final int budget;
+    private final long randomSeed;
+
+    private OperatorPipeline(List<Stage> stages, ForkJoinPool pool, Function<Pattern, Object> dedupKey, int budget,
+                             long randomSeed) {
+        this.stages = stages;
+        this.pool = pool;
+        this.dedupKey = dedupKey;
+        this.budget = budget;
+        this.randomSeed = randomSeed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param seeds patterns fed to the first stage
+     * @return the distinct patterns produced by the last stage
+     */
+    public Set<Pattern> apply(Collection<Pattern> seeds, TypeContext ctx) {
+        Set<Pattern> current = new HashSet<>(seeds);
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            long stageSeed = Utils.random(randomSeed, i).nextLong();
+            Set<Pattern> input = current;
+            // a parallel stream started from inside the pool runs on the pool's workers
+            current = pool.submit(() -> applyStage(stage, stageSeed, input, ctx)).join();
+        }
+        return Collections.unmodifiableSet(current);
+    }
+
+    private Set<Pattern> applyStage(Stage stage, long stageSeed, Collection<Pattern> input, TypeContext ctx) {
+        long start = System.nanoTime();
+        Set<Object> seen = ConcurrentHashMap.newKeySet();
+        Set<Pattern> output = input.parallelStream()
+                .flatMap(p -> {
+                    stage.inputs.increment();
+                    SplittableRandom random = Utils.random(stageSeed, p.toString().hashCode());
+                    return budget == UNBOUNDED ?
+                            stage.operator.apply(p, ctx, random) :
+                            stage.operator.apply(p, ctx, budget, random);
+                })
+                .filter(p -> {
+                    stage.outputs.increment();
+                    if (seen.add(dedupKey.apply(p))) return true;
+                    stage.duplicates.increment();
+                    return false;
+                })
+                .collect(Collectors.toSet());
+        stage.nanos.add(System.nanoTime() - start);
+        return output;
+    }
+
+    public List<Stage> stages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * @return seed from which all random choices of the pipeline are derived
+     */
+    public long randomSeed() {
+        return randomSeed;
+    }
+
+    public static class Builder {
+        private final List<Stage> stages = new ArrayList<>();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private Function<Pattern, Object> dedupKey = p -> p;
+        private int budget = UNBOUNDED;
+        private long randomSeed = new SplittableRandom().nextLong();
+
+        public Builder stage(Operator operator) {
+            return stage(operator.getClass().getSimpleName(), operator);
+        }
+
+        public Builder stage(String name, Operator operator) {
+            stages.add(new Stage(name, operator));
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Two outputs of a stage are duplicates if their keys are equal. By default patterns are compared with
+         * Pattern.equals.
+         */
+        public Builder dedupKey(Function<Pattern, Object> dedupKey) {
+            this.dedupKey = dedupKey;
+            return this;
+        }
+
+        /**
+         * Caps the number of patterns a single operator application may contribute to a stage. Applications
+         * exceeding the cap are sampled, see Operator.apply(Pattern, TypeContext, int).
+         */
+        public Builder budget(int budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Fixes the seed of the pipeline's random choices, e.g. to replay a run reported by randomSeed().
+         * By default a fresh seed is drawn for every built pipeline.
+         */
+        public Builder randomSeed(long randomSeed) {
+            this.randomSeed = randomSeed;
+            return this;
+        }
+
+        public OperatorPipeline build() {
+            return new OperatorPipeline(new ArrayList<>(stages), pool, dedupKey, budget, randomSeed);
+        }
+    }
+}
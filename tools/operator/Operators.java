@@ -38,4 +38,6 @@ public class Operators {
 
     public static Operator fuzzIds(){ return new IdFuzzyingOperator();}
 
+    public static CachingOperator cached(Operator operator, long maximumSize){ return new CachingOperator(operator, maximumSize);}
+
 }
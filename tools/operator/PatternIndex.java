@@ -0,0 +1,118 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import graql.lang.pattern.Pattern;
+import graql.lang.property.HasAttributeProperty;
+import graql.lang.property.IdProperty;
+import graql.lang.property.IsaProperty;
+import graql.lang.property.RelationProperty;
+import graql.lang.property.VarProperty;
+import graql.lang.statement.Statement;
+import graql.lang.statement.Variable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Analysis of a source pattern shared by operators. The statements of the pattern and their properties are walked
+ * once and bucketed by the property kinds operators transform, so that neither operators nor sanitisation of
+ * their outputs need to rescan the source pattern.
+ *
+ * Per-statement lookups are by identity and expect statements obtained from statements().
+ */
+public class PatternIndex {
+
+    private final Pattern pattern;
+    private final Set<Statement> statements;
+    private final Map<Variable, List<Statement>> statementsByVariable = new HashMap<>();
+    private final Set<Variable> rolePlayerVariables = new HashSet<>();
+    private final Map<Statement, Set<IdProperty>> ids = new IdentityHashMap<>();
+    private final Map<Statement, IsaProperty> isas = new IdentityHashMap<>();
+    private final Map<Statement, Set<HasAttributeProperty>> attributes = new IdentityHashMap<>();
+    private final Map<Statement, RelationProperty> relations = new IdentityHashMap<>();
+
+    private PatternIndex(Pattern pattern) {
+        this.pattern = pattern;
+        this.statements = Collections.unmodifiableSet(pattern.statements());
+        for (Statement statement : statements) {
+            statementsByVariable.computeIfAbsent(statement.var(), v -> new ArrayList<>()).add(statement);
+            for (VarProperty property : statement.properties()) {
+                if (property instanceof IdProperty) {
+                    ids.computeIfAbsent(statement, s -> new LinkedHashSet<>()).add((IdProperty) property);
+                } else if (property instanceof IsaProperty) {
+                    isas.putIfAbsent(statement, (IsaProperty) property);
+                } else if (property instanceof HasAttributeProperty) {
+                    attributes.computeIfAbsent(statement, s -> new LinkedHashSet<>()).add((HasAttributeProperty) property);
+                } else if (property instanceof RelationProperty) {
+                    RelationProperty relation = (RelationProperty) property;
+                    relations.putIfAbsent(statement, relation);
+                    relation.relationPlayers().forEach(rp -> rolePlayerVariables.add(rp.getPlayer().var()));
+                }
+            }
+        }
+    }
+
+    public static PatternIndex of(Pattern pattern) {
+        return new PatternIndex(pattern);
+    }
+
+    public Pattern pattern() { return pattern; }
+
+    public Set<Statement> statements() { return statements; }
+
+    public List<Statement> statements(Variable var) {
+        return statementsByVariable.getOrDefault(var, Collections.emptyList());
+    }
+
+    /**
+     * @return variables of role players of all relations in the pattern
+     */
+    public Set<Variable> rolePlayerVariables() {
+        return Collections.unmodifiableSet(rolePlayerVariables);
+    }
+
+    public boolean hasIds() { return !ids.isEmpty(); }
+
+    public boolean hasRelations() { return !relations.isEmpty(); }
+
+    public Set<IdProperty> ids(Statement statement) {
+        return ids.getOrDefault(statement, Collections.emptySet());
+    }
+
+    public Optional<IsaProperty> isa(Statement statement) {
+        return Optional.ofNullable(isas.get(statement));
+    }
+
+    public Set<HasAttributeProperty> attributes(Statement statement) {
+        return attributes.getOrDefault(statement, Collections.emptySet());
+    }
+
+    public Optional<RelationProperty> relation(Statement statement) {
+        return Optional.ofNullable(relations.get(statement));
+    }
+}
@@ -0,0 +1,300 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import graql.lang.Graql;
+import graql.lang.pattern.Pattern;
+import graql.lang.property.RelationProperty;
+import graql.lang.property.VarProperty;
+import graql.lang.statement.Statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Minimises a failing pattern with hierarchical delta debugging (ddmin). The pattern is split into atoms along the
+ * moves of the removal operators: every property of a statement is an atom, except relation properties, which
+ * contribute one atom per role player. ddmin is run first over whole statements, then over properties and finally
+ * over role players, and the levels are repeated until a full pass removes nothing. The result still fails and
+ * removing any single statement, property or role player from it makes the failure go away.
+ *
+ * Candidate subsets of a ddmin round are checked in parallel over a fork-join pool; the first failing candidate in
+ * split order is kept, so the result does not depend on scheduling. Outcomes of the failure predicate are cached
+ * per canonical form, so alpha-equivalent candidates are checked once, also across shrink calls.
+ *
+ * The failure predicate must be safe to call from several threads at once.
+ *
+ * Example:
+ *
+ * PatternShrinker.builder()
+ *      .failure(p -> runQuery(p).isSlow())
+ *      .build()
+ *      .shrink(failing);
+ */
+public class PatternShrinker {
+
+    /**
+     * Smallest removable unit of a pattern: a property of a statement, or a single role player of a relation property
+     */
+    private static class Atom {
+        private final int statement;
+        private final int property;
+        private final RelationProperty.RolePlayer rolePlayer;
+
+        Atom(int statement, int property, RelationProperty.RolePlayer rolePlayer) {
+            this.statement = statement;
+            this.property = property;
+            this.rolePlayer = rolePlayer;
+        }
+    }
+
+    private static final List<Function<Atom, Object>> LEVELS = Arrays.asList(
+            atom -> atom.statement,
+            atom -> Arrays.asList(atom.statement, atom.property),
+            atom -> atom
+    );
+
+    private final Predicate<Pattern> failure;
+    private final Canonicaliser canonicaliser;
+    private final ForkJoinPool pool;
+    private final Cache<CanonicalForm, Boolean> outcomes;
+
+    private PatternShrinker(Predicate<Pattern> failure, Canonicaliser canonicaliser, ForkJoinPool pool,
+                            long cacheSize) {
+        this.failure = failure;
+        this.canonicaliser = canonicaliser;
+        this.pool = pool;
+        this.outcomes = CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param src pattern exhibiting the failure
+     * @return a 1-minimal sub-pattern of src that still exhibits the failure
+     */
+    public Pattern shrink(Pattern src) {
+        if (!fails(src)) throw new IllegalArgumentException("Pattern does not exhibit the failure: " + src);
+        List<Statement> statements = new ArrayList<>(src.statements());
+        List<Atom> atoms = atoms(statements);
+        int before;
+        do {
+            before = atoms.size();
+            for (Function<Atom, Object> level : LEVELS) {
+                atoms = ddmin(statements, group(atoms, level));
+            }
+        } while (atoms.size() < before);
+        return pattern(statements, atoms);
+    }
+
+    /**
+     * @return number of times the failure predicate was evaluated
+     */
+    public long tests() {
+        return outcomes.stats().missCount();
+    }
+
+    /**
+     * @return number of candidates whose outcome was already known
+     */
+    public long cacheHits() {
+        return outcomes.stats().hitCount();
+    }
+
+    private static List<Atom> atoms(List<Statement> statements) {
+        List<Atom> atoms = new ArrayList<>();
+        for (int s = 0; s < statements.size(); s++) {
+            List<VarProperty> properties = new ArrayList<>(statements.get(s).properties());
+            for (int p = 0; p < properties.size(); p++) {
+                VarProperty property = properties.get(p);
+                if (property instanceof RelationProperty) {
+                    for (RelationProperty.RolePlayer rp : ((RelationProperty) property).relationPlayers()) {
+                        atoms.add(new Atom(s, p, rp));
+                    }
+                } else {
+                    atoms.add(new Atom(s, p, null));
+                }
+            }
+        }
+        return atoms;
+    }
+
+    private static List<List<Atom>> group(List<Atom> atoms, Function<Atom, Object> level) {
+        return new ArrayList<>(atoms.stream()
+                .collect(Collectors.groupingBy(level, LinkedHashMap::new, Collectors.toList()))
+                .values());
+    }
+
+    /**
+     * Classic ddmin over groups of atoms: try to reduce to one of n chunks, then to the complement of one, and
+     * otherwise double the granularity until every chunk is a single group.
+     *
+     * @return atoms of the reduced groups
+     */
+    private List<Atom> ddmin(List<Statement> statements, List<List<Atom>> groups) {
+        List<List<Atom>> current = groups;
+        int n = 2;
+        while (current.size() >= 2) {
+            List<List<List<Atom>>> chunks = split(current, n);
+            Optional<List<List<Atom>>> reduced = firstFailing(statements, chunks);
+            if (reduced.isPresent()) {
+                current = reduced.get();
+                n = 2;
+                continue;
+            }
+            // for n = 2 the complements are the chunks themselves
+            if (n > 2) {
+                List<List<List<Atom>>> complements = IntStream.range(0, chunks.size())
+                        .mapToObj(i -> complement(chunks, i))
+                        .collect(Collectors.toList());
+                reduced = firstFailing(statements, complements);
+                if (reduced.isPresent()) {
+                    current = reduced.get();
+                    n = Math.max(n - 1, 2);
+                    continue;
+                }
+            }
+            if (n >= current.size()) break;
+            n = Math.min(2 * n, current.size());
+        }
+        return current.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    private static <T> List<List<T>> split(List<T> list, int n) {
+        List<List<T>> chunks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            chunks.add(list.subList(i * list.size() / n, (i + 1) * list.size() / n));
+        }
+        return chunks;
+    }
+
+    private static <T> List<T> complement(List<List<T>> chunks, int excluded) {
+        List<T> complement = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i != excluded) complement.addAll(chunks.get(i));
+        }
+        return complement;
+    }
+
+    private Optional<List<List<Atom>>> firstFailing(List<Statement> statements, List<List<List<Atom>>> candidates) {
+        return pool.submit(() -> IntStream.range(0, candidates.size())
+                .parallel()
+                .filter(i -> {
+                    Pattern pattern = pattern(statements, candidates.get(i).stream()
+                            .flatMap(List::stream)
+                            .collect(Collectors.toList()));
+                    return pattern != null && fails(pattern);
+                })
+                .mapToObj(candidates::get)
+                .findFirst()
+        ).join();
+    }
+
+    /**
+     * Rebuilds the pattern made of the given atoms, keeping statement and property order. Statements left without
+     * properties are dropped.
+     *
+     * @return the pattern, or null if no atoms are left
+     */
+    private static Pattern pattern(List<Statement> statements, List<Atom> atoms) {
+        Map<Integer, Map<Integer, List<Atom>>> kept = atoms.stream()
+                .collect(Collectors.groupingBy(a -> a.statement, Collectors.groupingBy(a -> a.property)));
+        List<Statement> shrunk = new ArrayList<>();
+        for (int s = 0; s < statements.size(); s++) {
+            Map<Integer, List<Atom>> keptProperties = kept.get(s);
+            if (keptProperties == null) continue;
+            Statement statement = statements.get(s);
+            List<VarProperty> properties = new ArrayList<>(statement.properties());
+            LinkedHashSet<VarProperty> shrunkProperties = new LinkedHashSet<>();
+            for (int p = 0; p < properties.size(); p++) {
+                List<Atom> keptAtoms = keptProperties.get(p);
+                if (keptAtoms == null) continue;
+                VarProperty property = properties.get(p);
+                if (property instanceof RelationProperty
+                        && keptAtoms.size() < ((RelationProperty) property).relationPlayers().size()) {
+                    property = Utils.relationProperty(keptAtoms.stream().map(a -> a.rolePlayer).collect(Collectors.toList()));
+                }
+                shrunkProperties.add(property);
+            }
+            shrunk.add(Statement.create(statement.var(), shrunkProperties));
+        }
+        return shrunk.isEmpty() ? null : Graql.and(shrunk);
+    }
+
+    private boolean fails(Pattern pattern) {
+        try {
+            return outcomes.get(canonicaliser.canonicalise(pattern), () -> failure.test(pattern));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public static class Builder {
+        private Predicate<Pattern> failure;
+        private Canonicaliser canonicaliser = new Canonicaliser();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private long cacheSize = 100_000;
+
+        /**
+         * @param failure true if the pattern exhibits the failure being minimised
+         */
+        public Builder failure(Predicate<Pattern> failure) {
+            this.failure = failure;
+            return this;
+        }
+
+        public Builder canonicaliser(Canonicaliser canonicaliser) {
+            this.canonicaliser = canonicaliser;
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Maximum number of predicate outcomes remembered
+         */
+        public Builder cacheSize(long cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        public PatternShrinker build() {
+            if (failure == null) throw new IllegalStateException("Failure predicate is required");
+            return new PatternShrinker(failure, canonicaliser, pool, cacheSize);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator;
+
+import graql.lang.Graql;
+import graql.lang.pattern.Pattern;
+import graql.lang.statement.Statement;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Base for operators whose output is the Cartesian product of per-statement alternatives. Each statement of the
+ * input pattern is transformed into a set of alternative statements, every combination of alternatives forms a
+ * candidate pattern and the candidates are then curated into the operator output.
+ *
+ * As the product is known before any pattern is built, the output size can be bounded exactly and budgeted
+ * applications sample combinations by index instead of enumerating them.
+ */
+public abstract class ProductOperator implements Operator {
+
+    // largest sample drawn by a budgeted application, as a multiple of its budget
+    private static final int MAX_OVERSAMPLING = 8;
+
+    /**
+     * @param src    index of the pattern to be transformed
+     * @param ctx    type context for patterns
+     * @param random source of randomness for randomised alternatives
+     * @return per-statement alternatives, or null if the operator does not apply to the pattern, in which case
+     * the pattern is returned unchanged
+     */
+    protected abstract List<Set<Statement>> alternatives(PatternIndex src, TypeContext ctx, SplittableRandom random);
+
+    /**
+     * @param candidates patterns formed from combinations of alternatives
+     * @param src        index of the original pattern
+     * @return operator output
+     */
+    protected abstract Stream<Pattern> curate(Stream<Pattern> candidates, PatternIndex src);
+
+    /**
+     * Operators whose alternatives draw from the context, eg. fresh instance ids, override this to count them
+     * without drawing anything.
+     *
+     * @return upper bound on the number of alternatives of each statement, or null if the operator does not apply
+     */
+    protected List<Integer> alternativeCounts(PatternIndex src, TypeContext ctx) {
+        List<Set<Statement>> alternatives = alternatives(src, ctx, new SplittableRandom());
+        if (alternatives == null) return null;
+        return alternatives.stream().map(Set::size).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
+        return apply(src, ctx, new SplittableRandom());
+    }
+
+    @Override
+    public Stream<Pattern> apply(Pattern src, TypeContext ctx, SplittableRandom random) {
+        PatternIndex index = PatternIndex.of(src);
+        List<Set<Statement>> alternatives = alternatives(index, ctx, random);
+        if (alternatives == null) return Stream.of(src);
+        return curate(CartesianProduct.of(alternatives).stream().map(Graql::and), index);
+    }
+
+    /**
+     * @return size of the product of alternatives - curation only ever removes candidates
+     */
+    @Override
+    public long estimate(Pattern src, TypeContext ctx) {
+        List<Integer> counts = alternativeCounts(PatternIndex.of(src), ctx);
+        if (counts == null) return 1;
+        if (counts.contains(0)) return 0;
+        long size = 1;
+        for (int count : counts) {
+            try {
+                size = Math.multiplyExact(size, count);
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Curation can drop sampled candidates, so candidates are sampled in rounds of doubling size until the curated
+     * output reaches the budget or the whole product has been curated. Sampling also stops once a round adds no new
+     * output or the round size reaches MAX_OVERSAMPLING times the budget: when curation folds many combinations into
+     * a few patterns, fewer than budget patterns are returned rather than sampling an ever larger share of the product.
+     */
+    @Override
+    public Stream<Pattern> apply(Pattern src, TypeContext ctx, int budget, SplittableRandom random) {
+        PatternIndex index = PatternIndex.of(src);
+        List<Set<Statement>> alternatives = alternatives(index, ctx, random);
+        if (alternatives == null) return Stream.of(src).limit(budget);
+        CartesianProduct<Statement> product = CartesianProduct.of(alternatives);
+
+        Set<Pattern> output = new LinkedHashSet<>();
+        long maxRound = Math.min((long) budget * MAX_OVERSAMPLING, Integer.MAX_VALUE);
+        for (long k = budget; ; k = Math.min(2 * k, maxRound)) {
+            boolean exhaustive = product.isIndexable() && product.size() <= k;
+            Stream<List<Statement>> candidates = exhaustive ?
+                    product.stream() :
+                    product.sample((int) k, random).stream();
+            int before = output.size();
+            curate(candidates.map(Graql::and), index).forEach(output::add);
+            if (output.size() >= budget || exhaustive || output.size() == before || k >= maxRound) break;
+        }
+        return output.size() <= budget ? output.stream() : Utils.sample(output.stream(), budget, random).stream();
+    }
+}
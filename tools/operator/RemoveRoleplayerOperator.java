@@ -19,7 +19,6 @@
 package grakn.verification.tools.operator;
 
 import com.google.common.collect.Sets;
-import graql.lang.Graql;
 import graql.lang.pattern.Pattern;
 import graql.lang.property.RelationProperty;
 import graql.lang.property.VarProperty;
@@ -32,6 +31,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -44,26 +44,27 @@ import static java.util.stream.Collectors.toSet;
  * - the set is computed in analogous fashion to RemoveSubstitutionOperator for substitution removal.
  *
  */
-public class RemoveRoleplayerOperator implements Operator {
+public class RemoveRoleplayerOperator extends ProductOperator {
 
     @Override
-    public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
-        if (!src.statements().stream().flatMap(s -> s.getProperties(RelationProperty.class)).findFirst().isPresent()){
-            return Stream.of(src);
-        }
-        List<Set<Statement>> transformedStatements = src.statements().stream()
-                .map(this::transformStatement)
+    protected List<Set<Statement>> alternatives(PatternIndex src, TypeContext ctx, SplittableRandom random) {
+        if (!src.hasRelations()) return null;
+        return src.statements().stream()
+                .map(s -> transformStatement(s, src))
                 .collect(Collectors.toList());
-        return Sets.cartesianProduct(transformedStatements).stream()
-                .map(Graql::and)
-                .filter(p -> !p.equals(src))
+    }
+
+    @Override
+    protected Stream<Pattern> curate(Stream<Pattern> candidates, PatternIndex src) {
+        return candidates
+                .filter(p -> !p.equals(src.pattern()))
                 .map(p -> sanitise(p, src))
                 .filter(p -> !p.statements().isEmpty());
     }
 
-    private Set<Statement> transformStatement(Statement src){
+    private Set<Statement> transformStatement(Statement src, PatternIndex index){
         Variable var = src.var();
-        RelationProperty relProperty = src.getProperty(RelationProperty.class).orElse(null);
+        RelationProperty relProperty = index.relation(src).orElse(null);
         if (relProperty == null) return Sets.newHashSet(src);
 
         Set<Optional<RelationProperty>> transformedProps = transformRelationProperty(relProperty);
@@ -90,7 +91,7 @@ public class RemoveRoleplayerOperator implements Operator {
             rPconfigurations.add(rps);
         });
 
-        return Sets.cartesianProduct(rPconfigurations).stream()
+        return CartesianProduct.of(rPconfigurations).stream()
                 .map(rpSet -> rpSet.stream().map(o -> o.orElse(null)).filter(Objects::nonNull).collect(toSet()))
                 .map(rpSet -> Optional.ofNullable(Utils.relationProperty(rpSet)))
                 .collect(toSet());
@@ -29,6 +29,7 @@ import graql.lang.statement.Variable;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -55,20 +56,20 @@ import java.util.stream.Stream;
  *
  * So the result is 8 patterns.
  */
-public class RemoveSubstitutionOperator implements Operator {
+public class RemoveSubstitutionOperator extends ProductOperator {
 
     @Override
-    public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
-        if (!src.statements().stream().flatMap(s -> s.getProperties(IdProperty.class)).findFirst().isPresent()){
-            return Stream.of(src);
-        }
-
-        List<Set<Statement>> transformedStatements = src.statements().stream()
-                .map(this::transformStatement)
+    protected List<Set<Statement>> alternatives(PatternIndex src, TypeContext ctx, SplittableRandom random) {
+        if (!src.hasIds()) return null;
+        return src.statements().stream()
+                .map(s -> transformStatement(s, src))
                 .collect(Collectors.toList());
-        return Sets.cartesianProduct(transformedStatements).stream()
-                .map(Graql::and)
-                .filter(p -> !p.equals(src))
+    }
+
+    @Override
+    protected Stream<Pattern> curate(Stream<Pattern> candidates, PatternIndex src) {
+        return candidates
+                .filter(p -> !p.equals(src.pattern()))
                 .map(p -> Graql.and(
                         p.statements().stream()
                                 .filter(st -> !st.properties().isEmpty())
@@ -77,9 +78,9 @@ public class RemoveSubstitutionOperator implements Operator {
                 );
     }
 
-    private Set<Statement> transformStatement(Statement src){
+    private Set<Statement> transformStatement(Statement src, PatternIndex index){
         Variable var = src.var();
-        Set<IdProperty> ids = src.getProperties(IdProperty.class).collect(Collectors.toSet());
+        Set<IdProperty> ids = index.ids(src);
         if (ids.isEmpty()) return Sets.newHashSet(src);
 
         Set<Statement> transformedStatements = Sets.newHashSet(src);
@@ -30,6 +30,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.management.relation.Relation;
@@ -41,20 +42,23 @@ import static grakn.verification.tools.operator.Utils.sanitise;
  * Generates a set of generalised patterns by removing generalising roles within relations.
  * The set is computed from a Cartesian product of sets of statements each containing a single role generalisation.
  */
-public class RoleGeneraliseOperator implements Operator {
+public class RoleGeneraliseOperator extends ProductOperator {
 
     private static String TYPE_POSTFIX = "role";
 
     @Override
-    public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
+    protected List<Set<Statement>> alternatives(PatternIndex src, TypeContext ctx, SplittableRandom random) {
         //transform each statement into a set of its possible generalisations
-        List<Set<Statement>> transformedStatements = src.statements().stream()
-                .map(s -> transformStatement(s, ctx))
-                .collect(Collectors.toList());
         //we obtain a set of all possible patterns by computing a CP between sets of possible generalisation
         //of all statements
-        return Sets.cartesianProduct(transformedStatements).stream()
-                .map(Graql::and)
+        return src.statements().stream()
+                .map(s -> transformStatement(s, src, ctx))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected Stream<Pattern> curate(Stream<Pattern> candidates, PatternIndex src) {
+        return candidates
                 .map(p -> sanitise(p, src))
                 .filter(p -> !p.statements().isEmpty());
     }
@@ -62,12 +66,13 @@ public class RoleGeneraliseOperator implements Operator {
     /**
      * transform: single statement -> multiple statements each with different change in its relationProperty
      * @param src
+     * @param index
      * @param ctx
      * @return
      */
-    private Set<Statement> transformStatement(Statement src, TypeContext ctx){
+    private Set<Statement> transformStatement(Statement src, PatternIndex index, TypeContext ctx){
         Variable var = src.var();
-        RelationProperty relProperty = src.getProperty(RelationProperty.class).orElse(null);
+        RelationProperty relProperty = index.relation(src).orElse(null);
         if (relProperty == null) return Sets.newHashSet(src);
 
         Set<RelationProperty> transformedRelationsProps = transformRelationProperty(relProperty, ctx);
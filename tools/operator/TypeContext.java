@@ -18,14 +18,31 @@
 
 package grakn.verification.tools.operator;
 
+import java.util.SplittableRandom;
 import java.util.stream.Stream;
 
 public interface TypeContext {
 
     boolean isMetaType(String label);
     String sup(String label);
+
+    /**
+     * @return all super types of the type, closest first, not including the type itself
+     */
     Stream<String> sups(String label);
+
+    /**
+     * @return all sub types of the type, not including the type itself
+     */
     Stream<String> subs(String label);
 
     String instanceId();
+
+    /**
+     * @param random source of randomness, so that the choice of id can be replayed from a seed
+     * @return id of an instance
+     */
+    default String instanceId(SplittableRandom random) {
+        return instanceId();
+    }
 }
@@ -41,11 +41,12 @@ public class TypeGeneraliseOperator implements Operator {
 
     @Override
     public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
-        Set<Statement> originalStatements = src.statements();
+        PatternIndex index = PatternIndex.of(src);
+        Set<Statement> originalStatements = index.statements();
         Set<Pattern> transformedPatterns = new HashSet<>();
 
         originalStatements.forEach(s -> {
-            Statement transformed = transformStatement(s, ctx);
+            Statement transformed = transformStatement(s, index, ctx);
             Set<Statement> statements = new HashSet<>(originalStatements);
             statements.remove(s);
             if (transformed != null) statements.add(transformed);
@@ -55,9 +56,9 @@ public class TypeGeneraliseOperator implements Operator {
                 .filter(p -> !p.equals(src));
     }
 
-    private Statement transformStatement(Statement src, TypeContext ctx){
+    private Statement transformStatement(Statement src, PatternIndex index, TypeContext ctx){
         Variable var = src.var();
-        IsaProperty isaProperty = src.getProperty(IsaProperty.class).orElse(null);
+        IsaProperty isaProperty = index.isa(src).orElse(null);
         if (isaProperty == null) return src;
 
         String type = isaProperty.type().getType().orElse(null);
@@ -22,14 +22,21 @@ import com.google.common.collect.Sets;
 import graql.lang.Graql;
 import graql.lang.pattern.Pattern;
 import graql.lang.property.RelationProperty;
+import graql.lang.property.VarProperty;
 import graql.lang.statement.Statement;
 
 import graql.lang.statement.Variable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Utils {
 
@@ -38,11 +45,11 @@ public class Utils {
      * - remove statements without properties
      * - remove statements that are disconnected from the original pattern
      * @param p transformed pattern
-     * @param src original Pattern
+     * @param src index of the original Pattern
      * @return
      */
-    static Pattern sanitise(Pattern p, Pattern src){
-        Set<Variable> toRemove = Sets.difference(rolePlayerVariables(src), rolePlayerVariables(p));
+    static Pattern sanitise(Pattern p, PatternIndex src){
+        Set<Variable> toRemove = Sets.difference(src.rolePlayerVariables(), rolePlayerVariables(p));
         return Graql.and(
                 p.statements().stream()
                         .filter(st -> !st.properties().isEmpty())
@@ -61,6 +68,26 @@ public class Utils {
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * @param vars variable renaming, variables not in it are kept
+     * @return the pattern with its variables renamed, statement order preserved
+     */
+    static Pattern renameVariables(Pattern p, Map<Variable, Variable> vars){
+        return Graql.and(
+                p.statements().stream()
+                        .map(s -> renameVariables(s, vars))
+                        .collect(Collectors.toList())
+        );
+    }
+
+    static Statement renameVariables(Statement src, Map<Variable, Variable> vars){
+        LinkedHashSet<VarProperty> transformedProperties = src.properties().stream()
+                .map(p -> PropertyVariableTransform.transform(p, vars))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Variable statementVar = vars.containsKey(src.var()) ? vars.get(src.var()) : src.var();
+        return Statement.create(statementVar, transformedProperties);
+    }
+
     static RelationProperty relationProperty(Collection<RelationProperty.RolePlayer> relationPlayers) {
         if (relationPlayers.isEmpty()) return null;
         Statement var = Graql.var();
@@ -73,4 +100,42 @@ public class Utils {
         }
         return var.getProperty(RelationProperty.class).orElse(null);
     }
+
+    /**
+     * Derives an independent source of randomness from a run seed and a key identifying the unit of work, so that
+     * work items can be processed in any order, on any thread, and still replay the same random choices.
+     */
+    static SplittableRandom random(long seed, long key) {
+        return new SplittableRandom(mix64(seed + GOLDEN_GAMMA * mix64(key)));
+    }
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Reservoir sample of a stream of unknown length. The stream is consumed fully but at most k elements are kept.
+     * If the stream has no more than k elements, all of them are returned in encounter order.
+     */
+    static <T> List<T> sample(Stream<T> stream, int k, SplittableRandom random) {
+        if (k < 0) throw new IllegalArgumentException("Sample size must be non-negative: " + k);
+        List<T> reservoir = new ArrayList<>();
+        Iterator<T> it = stream.iterator();
+        long seen = 0;
+        while (it.hasNext()) {
+            T next = it.next();
+            seen++;
+            if (reservoir.size() < k) {
+                reservoir.add(next);
+            } else {
+                long j = random.nextLong(seen);
+                if (j < k) reservoir.set((int) j, next);
+            }
+        }
+        return reservoir;
+    }
 }
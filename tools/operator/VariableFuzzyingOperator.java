@@ -22,18 +22,18 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import graql.lang.Graql;
 import graql.lang.pattern.Pattern;
-import graql.lang.property.VarProperty;
-import graql.lang.statement.Statement;
 import graql.lang.statement.Variable;
 
-import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static grakn.verification.tools.operator.Utils.renameVariables;
 import static grakn.verification.tools.operator.Utils.sanitise;
 
 /**
@@ -46,32 +46,45 @@ import static grakn.verification.tools.operator.Utils.sanitise;
 public class VariableFuzzyingOperator implements Operator{
 
     private final static int varLength = 3;
+    private final static String varChars = "abcdefghijklmnopqrstuvwxyz0123456789";
 
     @Override
     public Stream<Pattern> apply(Pattern src, TypeContext ctx) {
+        return apply(src, ctx, new SplittableRandom());
+    }
+
+    @Override
+    public Stream<Pattern> apply(Pattern src, TypeContext ctx, SplittableRandom random) {
         //generate new variables and how they map to existing variables
-        Map<Variable, Variable> varTransforms = new HashMap<>();
-        src.statements().stream().flatMap(s -> s.variables().stream())
-                .forEach(v -> {
-                    String newVarVal = Graql.var().var().name();
-                    Variable newVar = Graql.var(newVarVal.substring(newVarVal.length() - varLength)).var();
-                    if (v.isReturned()) newVar = newVar.asReturnedVar();
-                    varTransforms.put(v, newVar);
-                });
+        //variables are visited in name order so that the same random source yields the same names
+        List<Variable> vars = src.statements().stream()
+                .flatMap(s -> s.variables().stream())
+                .distinct()
+                .sorted(Comparator.comparing(Variable::name))
+                .collect(Collectors.toList());
+        Set<String> taken = vars.stream().map(Variable::name).collect(Collectors.toSet());
+        Map<Variable, Variable> varTransforms = new LinkedHashMap<>();
+        vars.forEach(v -> {
+            Variable newVar = Graql.var(randomName(taken, random)).var();
+            if (v.isReturned()) newVar = newVar.asReturnedVar();
+            varTransforms.put(v, newVar);
+        });
 
         return varTransforms.entrySet().stream()
                 .map(e -> src.statements().stream()
-                        .map(s -> transformStatement(s, ImmutableMap.of(e.getKey(), e.getValue())))
+                        .map(s -> renameVariables(s, ImmutableMap.of(e.getKey(), e.getValue())))
                         .collect(Collectors.toList()))
                 .map(Graql::and);
 
     }
 
-    private Statement transformStatement(Statement src, Map<Variable, Variable> vars){
-        LinkedHashSet<VarProperty> transformedProperties = src.properties().stream()
-                .map(p -> PropertyVariableTransform.transform(p, vars))
-                .collect(Collectors.toCollection(LinkedHashSet::new));
-        Variable statementVar = vars.containsKey(src.var()) ? vars.get(src.var()) : src.var();
-        return Statement.create(statementVar, transformedProperties);
+    private static String randomName(Set<String> taken, SplittableRandom random){
+        String name;
+        do {
+            StringBuilder builder = new StringBuilder(varLength);
+            for (int i = 0; i < varLength; i++) builder.append(varChars.charAt(random.nextInt(varChars.length())));
+            name = builder.toString();
+        } while (!taken.add(name));
+        return name;
     }
 }
@@ -0,0 +1,152 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator.answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compact set of answers over a fixed list of variables, with concept ids encoded by a ConceptDictionary.
+ * Answers over a single variable are stored as a CompressedBitmap, answers over several variables as a
+ * packed TupleSet. Answer sets are compared by position, so both operands of an operation must list the same
+ * variables in the same order and share a dictionary.
+ */
+public class AnswerSet {
+
+    private final int arity;
+    private final CompressedBitmap bitmap;
+    private final TupleSet tuples;
+
+    private AnswerSet(CompressedBitmap bitmap) {
+        this.arity = 1;
+        this.bitmap = bitmap;
+        this.tuples = null;
+    }
+
+    private AnswerSet(TupleSet tuples) {
+        this.arity = tuples.arity();
+        this.bitmap = null;
+        this.tuples = tuples;
+    }
+
+    public static Builder builder(int arity) {
+        return new Builder(arity);
+    }
+
+    public int arity() { return arity; }
+
+    public long size() {
+        return bitmap != null ? bitmap.cardinality() : tuples.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean contains(int... tuple) {
+        if (tuple.length != arity) return false;
+        return bitmap != null ? bitmap.contains(tuple[0]) : tuples.contains(tuple);
+    }
+
+    public boolean isSubsetOf(AnswerSet that) {
+        checkArity(that);
+        return bitmap != null ? bitmap.isSubsetOf(that.bitmap) : tuples.isSubsetOf(that.tuples);
+    }
+
+    public AnswerSet intersect(AnswerSet that) {
+        checkArity(that);
+        return bitmap != null ? new AnswerSet(bitmap.and(that.bitmap)) : new AnswerSet(tuples.intersect(that.tuples));
+    }
+
+    public AnswerSet difference(AnswerSet that) {
+        checkArity(that);
+        return bitmap != null ? new AnswerSet(bitmap.andNot(that.bitmap)) : new AnswerSet(tuples.difference(that.tuples));
+    }
+
+    /**
+     * @param columns positions of the variables to keep, in their new order
+     * @return distinct answers restricted to the given variables
+     */
+    public AnswerSet project(int... columns) {
+        Builder builder = new Builder(columns.length);
+        forEach(tuple -> {
+            int[] projected = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) projected[i] = tuple[columns[i]];
+            builder.add(projected);
+        });
+        return builder.build();
+    }
+
+    /**
+     * Visits answers in ascending order. The visited array must not be retained by the action.
+     */
+    public void forEach(Consumer<int[]> action) {
+        if (bitmap != null) {
+            int[] tuple = new int[1];
+            bitmap.forEach(value -> {
+                tuple[0] = value;
+                action.accept(tuple);
+            });
+        } else {
+            tuples.forEach(action);
+        }
+    }
+
+    /**
+     * @return answers as lists of concept ids
+     */
+    public List<List<String>> decode(ConceptDictionary dictionary) {
+        List<List<String>> decoded = new ArrayList<>();
+        forEach(tuple -> {
+            List<String> ids = new ArrayList<>(tuple.length);
+            for (int code : tuple) ids.add(dictionary.decode(code));
+            decoded.add(ids);
+        });
+        return decoded;
+    }
+
+    private void checkArity(AnswerSet that) {
+        if (arity != that.arity) throw new IllegalArgumentException("Arity mismatch: " + arity + " != " + that.arity);
+    }
+
+    public static class Builder {
+        private final CompressedBitmap bitmap;
+        private final TupleSet.Builder tuples;
+
+        Builder(int arity) {
+            this.bitmap = arity == 1 ? new CompressedBitmap() : null;
+            this.tuples = arity == 1 ? null : TupleSet.builder(arity);
+        }
+
+        public Builder add(int... tuple) {
+            if (bitmap != null) {
+                if (tuple.length != 1) throw new IllegalArgumentException("Arity mismatch: " + tuple.length + " != 1");
+                bitmap.add(tuple[0]);
+            } else {
+                tuples.add(tuple);
+            }
+            return this;
+        }
+
+        public AnswerSet build() {
+            return bitmap != null ? new AnswerSet(bitmap) : new AnswerSet(tuples.build());
+        }
+    }
+}
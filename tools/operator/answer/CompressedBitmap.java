@@ -0,0 +1,308 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator.answer;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Roaring-style compressed bitmap of non-negative ints. Values are partitioned by their high 16 bits into
+ * containers holding the low 16 bits: containers with at most 4096 values are sorted arrays, denser ones are
+ * 65536-bit bitmaps. Set operations work container by container over the sorted keys.
+ */
+public class CompressedBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys = new char[0];
+    private Container[] containers = new Container[0];
+    private int size = 0;
+
+    public static CompressedBitmap of(int... values) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value : values) bitmap.add(value);
+        return bitmap;
+    }
+
+    public void add(int value) {
+        if (value < 0) throw new IllegalArgumentException("Negative value: " + value);
+        char key = (char) (value >>> 16);
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            insert(i, key, new ArrayContainer());
+        }
+        containers[i] = containers[i].add((char) value);
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) return false;
+        int i = indexOf((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) cardinality += containers[i].cardinality();
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isSubsetOf(CompressedBitmap that) {
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < that.size && that.keys[j] < keys[i]) j++;
+            if (j == that.size || that.keys[j] != keys[i]) return false;
+            if (!containers[i].isSubsetOf(that.containers[j])) return false;
+        }
+        return true;
+    }
+
+    public CompressedBitmap and(CompressedBitmap that) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < that.size) {
+            if (keys[i] < that.keys[j]) {
+                i++;
+            } else if (keys[i] > that.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], containers[i].and(that.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public CompressedBitmap andNot(CompressedBitmap that) {
+        CompressedBitmap result = new CompressedBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < that.size && that.keys[j] < keys[i]) j++;
+            if (j < that.size && that.keys[j] == keys[i]) {
+                result.append(keys[i], containers[i].andNot(that.containers[j]));
+            } else {
+                result.append(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the values in ascending order
+     */
+    public IntStream stream() {
+        IntStream.Builder builder = IntStream.builder();
+        forEach(builder::add);
+        return builder.build();
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            containers[i].forEach(low -> action.accept(high | low));
+        }
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int i, char key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        if (container.cardinality() > 0) insert(size, key, container);
+    }
+
+    private abstract static class Container {
+        abstract Container add(char value);
+        abstract boolean contains(char value);
+        abstract int cardinality();
+        abstract void forEach(IntConsumer action);
+        abstract Container copy();
+
+        boolean isSubsetOf(Container that) {
+            if (cardinality() > that.cardinality()) return false;
+            boolean[] subset = {true};
+            forEach(value -> subset[0] &= that.contains((char) value));
+            return subset[0];
+        }
+
+        Container and(Container that) {
+            Container result = new ArrayContainer();
+            Container smaller = cardinality() <= that.cardinality() ? this : that;
+            Container larger = smaller == this ? that : this;
+            Container[] holder = {result};
+            smaller.forEach(value -> {
+                if (larger.contains((char) value)) holder[0] = holder[0].add((char) value);
+            });
+            return holder[0];
+        }
+
+        Container andNot(Container that) {
+            Container[] holder = {new ArrayContainer()};
+            forEach(value -> {
+                if (!that.contains((char) value)) holder[0] = holder[0].add((char) value);
+            });
+            return holder[0];
+        }
+    }
+
+    private static class ArrayContainer extends Container {
+        private char[] values = new char[4];
+        private int cardinality = 0;
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) return this;
+            if (cardinality == ARRAY_LIMIT) {
+                BitmapContainer bitmap = new BitmapContainer();
+                forEach(v -> bitmap.add((char) v));
+                return bitmap.add(value);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) action.accept(values[i]);
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            copy.cardinality = cardinality;
+            return copy;
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality = 0;
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            int word = value >>> 6;
+            if ((words[word] & bit) == 0) {
+                words[word] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(IntConsumer action) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        boolean isSubsetOf(Container that) {
+            if (!(that instanceof BitmapContainer)) return super.isSubsetOf(that);
+            long[] other = ((BitmapContainer) that).words;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                if ((words[w] & ~other[w]) != 0) return false;
+            }
+            return true;
+        }
+
+        @Override
+        Container and(Container that) {
+            if (!(that instanceof BitmapContainer)) return super.and(that);
+            return fromWords(words, ((BitmapContainer) that).words, false);
+        }
+
+        @Override
+        Container andNot(Container that) {
+            if (!(that instanceof BitmapContainer)) return super.andNot(that);
+            return fromWords(words, ((BitmapContainer) that).words, true);
+        }
+
+        private static Container fromWords(long[] a, long[] b, boolean negate) {
+            BitmapContainer result = new BitmapContainer();
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                result.words[w] = a[w] & (negate ? ~b[w] : b[w]);
+                result.cardinality += Long.bitCount(result.words[w]);
+            }
+            if (result.cardinality > ARRAY_LIMIT) return result;
+            ArrayContainer array = new ArrayContainer();
+            result.forEach(value -> array.add((char) value));
+            return array;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator.answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps concept ids to dense ints, in order of first occurrence. Answer sets built against the same dictionary can
+ * be compared with each other, so a single dictionary should be shared by all queries of a checking session.
+ */
+public class ConceptDictionary {
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final List<String> conceptIds = new ArrayList<>();
+
+    public int encode(String conceptId) {
+        Integer code = codes.get(conceptId);
+        if (code != null) return code;
+        synchronized (this) {
+            return codes.computeIfAbsent(conceptId, id -> {
+                conceptIds.add(id);
+                return conceptIds.size() - 1;
+            });
+        }
+    }
+
+    public synchronized String decode(int code) {
+        return conceptIds.get(code);
+    }
+
+    public synchronized int size() {
+        return conceptIds.size();
+    }
+}
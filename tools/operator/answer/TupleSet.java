@@ -0,0 +1,197 @@
+/*
+* Copyright (C) 2020 Grakn Labs
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package grakn.verification.tools.operator.answer;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Set of fixed-arity int tuples, packed row after row into a single array in lexicographic order without
+ * duplicates. Membership is a binary search and set operations are merge passes.
+ */
+public class TupleSet {
+
+    private final int arity;
+    private final int size;
+    private final int[] data;
+
+    private TupleSet(int arity, int size, int[] data) {
+        this.arity = arity;
+        this.size = size;
+        this.data = data;
+    }
+
+    public static Builder builder(int arity) {
+        return new Builder(arity);
+    }
+
+    public int arity() { return arity; }
+    public int size() { return size; }
+
+    public boolean contains(int[] tuple) {
+        checkArity(tuple.length);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(data, mid * arity, tuple, 0, arity);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    public boolean isSubsetOf(TupleSet that) {
+        checkArity(that.arity);
+        if (size > that.size) return false;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < that.size && compare(that.data, j * arity, data, i * arity, arity) < 0) j++;
+            if (j == that.size || compare(that.data, j * arity, data, i * arity, arity) != 0) return false;
+        }
+        return true;
+    }
+
+    public TupleSet intersect(TupleSet that) {
+        return merge(that, true);
+    }
+
+    public TupleSet difference(TupleSet that) {
+        return merge(that, false);
+    }
+
+    public void forEach(Consumer<int[]> action) {
+        for (int i = 0; i < size; i++) action.accept(Arrays.copyOfRange(data, i * arity, (i + 1) * arity));
+    }
+
+    private TupleSet merge(TupleSet that, boolean keepShared) {
+        checkArity(that.arity);
+        int[] result = new int[data.length];
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < that.size && compare(that.data, j * arity, data, i * arity, arity) < 0) j++;
+            boolean shared = j < that.size && compare(that.data, j * arity, data, i * arity, arity) == 0;
+            if (shared == keepShared) {
+                System.arraycopy(data, i * arity, result, count * arity, arity);
+                count++;
+            }
+        }
+        return new TupleSet(arity, count, Arrays.copyOf(result, count * arity));
+    }
+
+    private void checkArity(int arity) {
+        if (arity != this.arity) throw new IllegalArgumentException("Arity mismatch: " + arity + " != " + this.arity);
+    }
+
+    private static int compare(int[] a, int aFrom, int[] b, int bFrom, int length) {
+        for (int k = 0; k < length; k++) {
+            int cmp = Integer.compare(a[aFrom + k], b[bFrom + k]);
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+
+    public static class Builder {
+        private final int arity;
+        private int[] data = new int[16];
+        private int size = 0;
+
+        Builder(int arity) {
+            if (arity < 0) throw new IllegalArgumentException("Negative arity: " + arity);
+            this.arity = arity;
+        }
+
+        public Builder add(int... tuple) {
+            if (tuple.length != arity) throw new IllegalArgumentException("Arity mismatch: " + tuple.length + " != " + arity);
+            if ((size + 1) * arity > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, (size + 1) * arity));
+            System.arraycopy(tuple, 0, data, size * arity, arity);
+            size++;
+            return this;
+        }
+
+        public TupleSet build() {
+            if (arity == 0) return new TupleSet(0, Math.min(size, 1), new int[0]);
+            int[] sorted = arity == 1 ? sortValues() : arity == 2 ? sortPairs() : sortRows();
+
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (count > 0 && compare(sorted, (count - 1) * arity, sorted, i * arity, arity) == 0) continue;
+                if (count != i) System.arraycopy(sorted, i * arity, sorted, count * arity, arity);
+                count++;
+            }
+            return new TupleSet(arity, count, Arrays.copyOf(sorted, count * arity));
+        }
+
+        private int[] sortValues() {
+            int[] sorted = Arrays.copyOf(data, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        /**
+         * Pairs are packed into longs ordered like the pairs: the first value signed in the high half, the second
+         * with its sign bit flipped in the low half
+         */
+        private int[] sortPairs() {
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                packed[i] = ((long) data[2 * i] << 32) | ((data[2 * i + 1] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+            }
+            Arrays.sort(packed);
+            int[] sorted = new int[2 * size];
+            for (int i = 0; i < size; i++) {
+                sorted[2 * i] = (int) (packed[i] >> 32);
+                sorted[2 * i + 1] = (int) packed[i] ^ Integer.MIN_VALUE;
+            }
+            return sorted;
+        }
+
+        /**
+         * Bottom-up merge sort of row indexes, so wider rows are only copied once they are in order
+         */
+        private int[] sortRows() {
+            int[] order = new int[size];
+            int[] merged = new int[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            for (int width = 1; width < size; width *= 2) {
+                for (int low = 0; low < size; low += 2 * width) {
+                    int mid = Math.min(low + width, size);
+                    int high = Math.min(low + 2 * width, size);
+                    int i = low;
+                    int j = mid;
+                    int k = low;
+                    while (i < mid && j < high) {
+                        boolean right = compare(data, order[j] * arity, data, order[i] * arity, arity) < 0;
+                        merged[k++] = right ? order[j++] : order[i++];
+                    }
+                    while (i < mid) merged[k++] = order[i++];
+                    while (j < high) merged[k++] = order[j++];
+                }
+                int[] swap = order;
+                order = merged;
+                merged = swap;
+            }
+            int[] sorted = new int[size * arity];
+            for (int i = 0; i < size; i++) System.arraycopy(data, order[i] * arity, sorted, i * arity, arity);
+            return sorted;
+        }
+    }
+}
@@ -26,94 +26,254 @@ import graql.lang.statement.Variable;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * Numeric interval with primitive bounds. Each bound is either open or closed, and may be infinite.
+ *
+ * A range whose bounds come from integral values (Byte, Short, Integer, Long) keeps them as exact longs, so large
+ * ids and counters are compared without going through double. Combining an integral range with a floating one
+ * yields a floating range, as Java numeric promotion does.
+ *
+ * Containment and intersection tests never allocate. intersect and hull allocate at most the resulting range, and
+ * return an operand unchanged when it already is the result.
+ */
 public class NumberRange implements Range<Number>{
-    private final Number lowerBound;
-    private final Number upperBound;
 
-    private NumberRange(Number low, Number high){
-        this.lowerBound = low;
-        this.upperBound = high;
+    private static final NumberRange UNBOUNDED = new NumberRange(false,
+            0, Double.NEGATIVE_INFINITY, true,
+            0, Double.POSITIVE_INFINITY, true);
+
+    private final boolean integral;
+    // exact bounds of integral ranges, unused when the bound is infinite
+    private final long lowLong;
+    private final long highLong;
+    // bounds as doubles, infinite when unbounded
+    private final double low;
+    private final double high;
+    private final boolean lowOpen;
+    private final boolean highOpen;
+
+    private NumberRange(boolean integral,
+                        long lowLong, double low, boolean lowOpen,
+                        long highLong, double high, boolean highOpen){
+        this.integral = integral;
+        this.lowLong = lowLong;
+        this.low = low;
+        // infinite bounds are never attained
+        this.lowOpen = lowOpen || low == Double.NEGATIVE_INFINITY;
+        this.highLong = highLong;
+        this.high = high;
+        this.highOpen = highOpen || high == Double.POSITIVE_INFINITY;
     }
 
-    public static Range create(Graql.Token.Comparator comp, Object val){
-        if (!(val instanceof Number)) return new NumberRange(null, null);
+    public static NumberRange unbounded(){ return UNBOUNDED; }
+
+    public static NumberRange create(Graql.Token.Comparator comp, Object val){
+        if (!(val instanceof Number)) return UNBOUNDED;
         Number value = (Number) val;
+        boolean integral = value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+        long l = value.longValue();
+        double d = integral ? l : value.doubleValue();
+        if (Double.isNaN(d)) return UNBOUNDED;
         switch(comp){
-            case EQV: case NEQV:
-                return new NumberRange(value, value);
+            case EQV:
+                return new NumberRange(integral, l, d, false, l, d, false);
             case GT: case GTE:
-                return new NumberRange(value, null);
+                return new NumberRange(integral, l, d, comp == Graql.Token.Comparator.GT, 0, Double.POSITIVE_INFINITY, true);
             case LT: case LTE:
-                return new NumberRange(null, value);
+                return new NumberRange(integral, 0, Double.NEGATIVE_INFINITY, true, l, d, comp == Graql.Token.Comparator.LT);
             default:
-                return new NumberRange(null, null);
+                // the values satisfying an inequality are unbounded
+                return UNBOUNDED;
         }
     }
 
     @Override
     public String toString(){
-        return "[" + (lowerBound() != null? lowerBound : "-INF") + ", " + (upperBound() != null? upperBound : "INF") +"]";
+        return (lowOpen? "(" : "[") + (lowerBounded()? lowerBound() : "-INF") + ", "
+                + (upperBounded()? upperBound() : "INF") + (highOpen? ")" : "]");
     }
 
-    @Override public Number lowerBound() { return lowerBound; }
-    @Override public Number upperBound() { return upperBound; }
+    public boolean isIntegral() { return integral; }
+    public boolean lowerBounded() { return low != Double.NEGATIVE_INFINITY; }
+    public boolean upperBounded() { return high != Double.POSITIVE_INFINITY; }
+    public boolean lowerOpen() { return lowOpen; }
+    public boolean upperOpen() { return highOpen; }
+
+    /**
+     * @return lower bound as a double, negative infinity if unbounded below
+     */
+    public double lowerBoundAsDouble() { return low; }
+
+    /**
+     * @return upper bound as a double, positive infinity if unbounded above
+     */
+    public double upperBoundAsDouble() { return high; }
 
     @Override
-    public Range<Number> merge(Range<Number> that){
-        Number low = lowerBound() == null?
-                that.lowerBound() :
-                that.lowerBound() != null? Math.max(lowerBound().doubleValue(), that.lowerBound().doubleValue()) : lowerBound();
-        Number high = upperBound() == null?
-                that.upperBound() :
-                that.upperBound() != null? Math.min(upperBound().doubleValue(), that.upperBound().doubleValue()) : upperBound();
-        return new NumberRange( low, high);
+    public Number lowerBound() {
+        if (!lowerBounded()) return null;
+        return integral ? (Number) lowLong : (Number) low;
     }
 
     @Override
-    public Range<Number> generalise(){
-        if (lowerBound() != null && upperBound() != null){
-            double hdiff = Math.abs((upperBound().doubleValue() - lowerBound().doubleValue()))/2;
-            if (lowerBound().equals(upperBound())) hdiff = lowerBound().doubleValue()/2;
-            Number low = lowerBound().doubleValue() - hdiff;
-            Number high = upperBound().doubleValue() + hdiff;
-            return new NumberRange(low, high);
-        }
+    public Number upperBound() {
+        if (!upperBounded()) return null;
+        return integral ? (Number) highLong : (Number) high;
+    }
 
-        Number low = null;
-        Number high = null;
-        if (lowerBound() != null){
-            double val = lowerBound().doubleValue();
-            low = val - Math.abs(val)/2;
+    public boolean isEmpty(){
+        return empty(this, this, integral);
+    }
+
+    public boolean contains(long value){
+        if (!integral) return contains((double) value);
+        return (!lowerBounded() || lowLong < value || (lowLong == value && !lowOpen))
+                && (!upperBounded() || value < highLong || (value == highLong && !highOpen));
+    }
+
+    public boolean contains(double value){
+        return (low < value || (low == value && !lowOpen))
+                && (value < high || (value == high && !highOpen));
+    }
+
+    /**
+     * @return true if every value of that range is in this range
+     */
+    public boolean contains(NumberRange that){
+        return that.isEmpty() || (compareLow(this, that) <= 0 && compareHigh(this, that) >= 0);
+    }
+
+    /**
+     * @return true if the two ranges share a value
+     */
+    public boolean intersects(NumberRange that){
+        return !empty(tighterLow(this, that), tighterHigh(this, that), integral && that.integral);
+    }
+
+    /**
+     * @return the range of values in both ranges
+     */
+    public NumberRange intersect(NumberRange that){
+        return combine(tighterLow(this, that), tighterHigh(this, that), that);
+    }
+
+    /**
+     * @return the smallest range containing both ranges
+     */
+    public NumberRange hull(NumberRange that){
+        if (that.isEmpty()) return this;
+        if (isEmpty()) return that;
+        NumberRange lowFrom = compareLow(this, that) <= 0 ? this : that;
+        NumberRange highFrom = compareHigh(this, that) >= 0 ? this : that;
+        return combine(lowFrom, highFrom, that);
+    }
+
+    @Override
+    public NumberRange merge(Range<Number> that){
+        if (!(that instanceof NumberRange)) {
+            throw new IllegalArgumentException("Cannot merge a number range with " + that.getClass().getSimpleName());
         }
-        if (upperBound() != null) {
-            double val = upperBound().doubleValue();
-            high = val + Math.abs(val)/2;
+        return intersect((NumberRange) that);
+    }
+
+    /**
+     * Widens each finite bound by half of the range width, or by half of its magnitude if the range is a point or
+     * is unbounded on the other side. Widened bounds are open and floating, as halving may leave the integers.
+     */
+    @Override
+    public NumberRange generalise(){
+        if (!lowerBounded() && !upperBounded()) return this;
+        double lowShift = 0;
+        double highShift = 0;
+        if (lowerBounded() && upperBounded()) {
+            lowShift = highShift = low == high ? Math.abs(low) / 2 : Math.abs(high - low) / 2;
+        } else if (lowerBounded()) {
+            lowShift = Math.abs(low) / 2;
+        } else {
+            highShift = Math.abs(high) / 2;
         }
-        return new NumberRange(low, high);
+        return new NumberRange(false,
+                0, low - lowShift, lowShift > 0 || lowOpen,
+                0, high + highShift, highShift > 0 || highOpen);
     }
 
     @Override
     public Set<ValueProperty> toProperties(){
-        if (lowerBound() == null && upperBound() == null){
+        if (!lowerBounded() && !upperBounded()){
             Statement newStatement = Graql.var(new Variable().asReturnedVar());
             ValueProperty.Operation.Comparison.Variable operation = new ValueProperty.Operation.Comparison.Variable(Graql.Token.Comparator.EQV, newStatement);
             return Sets.newHashSet(new ValueProperty<>(operation));
         }
 
-        if (lowerBound() != null && lowerBound().equals(upperBound())) {
+        if (lowerBounded() && upperBounded() && !lowOpen && !highOpen && compareValues(this, low, lowLong, this, high, highLong) == 0) {
             ValueProperty.Operation.Assignment.Number<Number> assignment = new ValueProperty.Operation.Assignment.Number.Number<Number>(lowerBound());
             return Sets.newHashSet(new ValueProperty<>(assignment));
         }
         Set<ValueProperty > vps = new HashSet<>();
-        if (lowerBound() != null){
-            ValueProperty.Operation.Comparison.Number<Number> comparison = new ValueProperty.Operation.Comparison.Number<>(Graql.Token.Comparator.GT, lowerBound());
+        if (lowerBounded()){
+            Graql.Token.Comparator comp = lowOpen ? Graql.Token.Comparator.GT : Graql.Token.Comparator.GTE;
+            ValueProperty.Operation.Comparison.Number<Number> comparison = new ValueProperty.Operation.Comparison.Number<>(comp, lowerBound());
             vps.add(new ValueProperty<>(comparison));
         }
-        if (upperBound() != null) {
-            ValueProperty.Operation.Comparison.Number<Number> comparison = new ValueProperty.Operation.Comparison.Number<>(Graql.Token.Comparator.LT, upperBound());
+        if (upperBounded()) {
+            Graql.Token.Comparator comp = highOpen ? Graql.Token.Comparator.LT : Graql.Token.Comparator.LTE;
+            ValueProperty.Operation.Comparison.Number<Number> comparison = new ValueProperty.Operation.Comparison.Number<>(comp, upperBound());
             vps.add(new ValueProperty<>(comparison));
         }
         return vps;
     }
 
+    /**
+     * @return range with the lower bound of lowFrom and the upper bound of highFrom, reusing one of the operands
+     * if it already has both
+     */
+    private NumberRange combine(NumberRange lowFrom, NumberRange highFrom, NumberRange that){
+        boolean resultIntegral = integral && that.integral;
+        if (lowFrom == highFrom && lowFrom.integral == resultIntegral) return lowFrom;
+        return new NumberRange(resultIntegral,
+                lowFrom.lowLong, lowFrom.low, lowFrom.lowOpen,
+                highFrom.highLong, highFrom.high, highFrom.highOpen);
+    }
+
+    private static NumberRange tighterLow(NumberRange a, NumberRange b){
+        return compareLow(a, b) >= 0 ? a : b;
+    }
+
+    private static NumberRange tighterHigh(NumberRange a, NumberRange b){
+        return compareHigh(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * Orders lower bounds by the values they admit: at equal values an open bound is the greater one
+     */
+    private static int compareLow(NumberRange a, NumberRange b){
+        int c = compareValues(a, a.low, a.lowLong, b, b.low, b.lowLong);
+        return c != 0 ? c : Boolean.compare(a.lowOpen, b.lowOpen);
+    }
+
+    /**
+     * Orders upper bounds by the values they admit: at equal values an open bound is the smaller one
+     */
+    private static int compareHigh(NumberRange a, NumberRange b){
+        int c = compareValues(a, a.high, a.highLong, b, b.high, b.highLong);
+        return c != 0 ? c : Boolean.compare(b.highOpen, a.highOpen);
+    }
+
+    private static int compareValues(NumberRange a, double ad, long al, NumberRange b, double bd, long bl){
+        if (a.integral && b.integral && !Double.isInfinite(ad) && !Double.isInfinite(bd)) return Long.compare(al, bl);
+        return ad < bd ? -1 : (ad > bd ? 1 : 0);
+    }
+
+    /**
+     * @return true if no value lies between the lower bound of lowFrom and the upper bound of highFrom
+     */
+    private static boolean empty(NumberRange lowFrom, NumberRange highFrom, boolean integral){
+        int c = compareValues(lowFrom, lowFrom.low, lowFrom.lowLong, highFrom, highFrom.high, highFrom.highLong);
+        if (c > 0) return true;
+        if (c == 0) return lowFrom.lowOpen || highFrom.highOpen;
+        // no integer lies strictly between two consecutive integers
+        return integral && lowFrom.lowOpen && highFrom.highOpen
+                && !Double.isInfinite(lowFrom.low) && !Double.isInfinite(highFrom.high)
+                && lowFrom.lowLong + 1 == highFrom.highLong;
+    }
 }
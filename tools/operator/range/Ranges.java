@@ -22,7 +22,7 @@ import graql.lang.property.ValueProperty;
 
 public class Ranges {
 
-    public static Range create(ValueProperty vp){
+    public static NumberRange create(ValueProperty vp){
         if(vp.operation().value() instanceof Number) {
             return NumberRange.create(vp.operation().comparator(), vp.operation().value());
         }
@@ -18,14 +18,15 @@
 
 package grakn.verification.tools.operator.test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
 import grakn.verification.tools.operator.TypeContext;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Stream;
 
 public class MockTypeContext implements TypeContext {
@@ -44,7 +45,7 @@ public class MockTypeContext implements TypeContext {
             .add("entity").add("relation")
             .build();
 
-    private final List<String> ids = Lists.newArrayList("123", "456", "789");
+    private final List<String> ids = ImmutableList.of("123", "456", "789");
 
     @Override
     public boolean isMetaType(String label) {
@@ -68,7 +69,11 @@ public class MockTypeContext implements TypeContext {
 
     @Override
     public String instanceId() {
-        Collections.shuffle(ids);
-        return ids.stream().findFirst().orElse(null);
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    @Override
+    public String instanceId(SplittableRandom random) {
+        return ids.get(random.nextInt(ids.size()));
     }
 }
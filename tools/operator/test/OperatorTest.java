@@ -18,25 +18,57 @@
 
 package grakn.verification.tools.operator.test;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import grakn.client.GraknClient;
+import grakn.client.answer.ConceptMap;
+import grakn.client.concept.Concept;
+import grakn.client.concept.ConceptId;
+import grakn.client.concept.Label;
+import grakn.client.concept.SchemaConcept;
+import grakn.verification.tools.operator.CachingOperator;
+import grakn.verification.tools.operator.CanonicalForm;
+import grakn.verification.tools.operator.Canonicaliser;
+import grakn.verification.tools.operator.CartesianProduct;
+import grakn.verification.tools.operator.ContainmentChecker;
+import grakn.verification.tools.operator.GraknTypeContext;
+import grakn.verification.tools.operator.InstanceIdPool;
+import grakn.verification.tools.operator.LatticeExplorer;
 import grakn.verification.tools.operator.Operator;
+import grakn.verification.tools.operator.OperatorPipeline;
 import grakn.verification.tools.operator.Operators;
+import grakn.verification.tools.operator.PatternIndex;
+import grakn.verification.tools.operator.PatternShrinker;
+import grakn.verification.tools.operator.ProductOperator;
 import grakn.verification.tools.operator.TypeContext;
+import grakn.verification.tools.operator.answer.AnswerSet;
+import grakn.verification.tools.operator.range.NumberRange;
 import graql.lang.Graql;
 import graql.lang.pattern.Pattern;
+import graql.lang.property.HasAttributeProperty;
 import graql.lang.property.IdProperty;
 import graql.lang.property.IsaProperty;
 import graql.lang.property.NeqProperty;
+import graql.lang.property.RelationProperty;
 import graql.lang.property.ValueProperty;
 import graql.lang.property.VarProperty;
+import graql.lang.query.GraqlGet;
+import graql.lang.statement.Statement;
 import graql.lang.statement.Variable;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.junit.AfterClass;
 import org.junit.Test;
 
 import static graql.lang.Graql.and;
@@ -45,10 +77,23 @@ import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class OperatorTest {
 
     private static TypeContext ctx = new MockTypeContext();
+    private static ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
 
     @Test
     public void computeIdentity(){
@@ -281,6 +326,74 @@ public class OperatorTest {
         assertEquals(expectedOutput, output);
     }
 
+    @Test
+    public void whenApplyingOperatorWithinBudget_weSampleOutputsWhenEstimateExceedsIt(){
+        Pattern input = and(
+                var("r").rel(var("x")).rel(var("y")),
+                var("x").id("V123"),
+                var("y").id("V456"),
+                var("z").id("V789")
+        );
+        Operator operator = Operators.removeSubstitution();
+        Set<Pattern> output = operator.apply(input, ctx).collect(Collectors.toSet());
+
+        assertEquals(8, operator.estimate(input, ctx));
+        assertTrue(operator.estimate(input, ctx) >= output.size());
+        assertEquals(output, operator.apply(input, ctx, 8).collect(Collectors.toSet()));
+
+        for (long seed = 0; seed < 20; seed++) {
+            Set<Pattern> sampled = operator.apply(input, ctx, 3, new SplittableRandom(seed)).collect(Collectors.toSet());
+            assertEquals(3, sampled.size());
+            assertTrue(output.containsAll(sampled));
+        }
+        assertEquals(output, operator.apply(input, ctx, output.size() + 5).collect(Collectors.toSet()));
+
+        Pattern typed = and(var("x").isa("subEntity"), var("y").isa("subEntity"));
+        Set<Pattern> generalised = Operators.typeGeneralise().apply(typed, ctx).collect(Collectors.toSet());
+        assertEquals(generalised.size(), Operators.typeGeneralise().estimate(typed, ctx));
+        List<Pattern> budgeted = Operators.typeGeneralise().apply(typed, ctx, 1).collect(Collectors.toList());
+        assertEquals(1, budgeted.size());
+        assertTrue(generalised.containsAll(budgeted));
+    }
+
+    @Test
+    public void whenCurationCollapsesHugeProduct_budgetedApplicationReturnsFewerOutputsAndStops(){
+        Pattern collapsed = and(var("x").isa("entity"));
+        AtomicInteger curated = new AtomicInteger();
+        Operator operator = new ProductOperator() {
+            @Override
+            protected List<Set<Statement>> alternatives(PatternIndex src, TypeContext ctx, SplittableRandom random) {
+                return IntStream.range(0, 40)
+                        .<Set<Statement>>mapToObj(i -> Sets.newHashSet(var("x" + i).isa("entity"), var("x" + i).isa("relation")))
+                        .collect(Collectors.toList());
+            }
+
+            @Override
+            protected Stream<Pattern> curate(Stream<Pattern> candidates, PatternIndex src) {
+                return candidates.peek(candidate -> curated.incrementAndGet()).map(candidate -> collapsed).distinct();
+            }
+        };
+        Pattern input = and(var("x").isa("entity"));
+
+        assertEquals(1L << 40, operator.estimate(input, ctx));
+        List<Pattern> output = operator.apply(input, ctx, 10, new SplittableRandom(0)).collect(Collectors.toList());
+        assertEquals(Lists.newArrayList(collapsed), output);
+        assertTrue(curated.get() <= 8 * 10 * 2);
+    }
+
+    @Test
+    public void whenEstimatingIdFuzzing_noIdsAreDrawn(){
+        Pattern input = and(
+                var("r").rel(var("x")).rel(var("y")),
+                var("x").id("V123"),
+                var("y").id("V456")
+        );
+        TypeContext idContext = mock(TypeContext.class);
+        assertEquals(4, Operators.fuzzIds().estimate(input, idContext));
+        verify(idContext, never()).instanceId();
+        verify(idContext, never()).instanceId(any());
+    }
+
     @Test
     public void whenApplyingRemoveSubOperatorToPatternWithNoSubs_weDoNoop(){
         Pattern input = and(
@@ -374,6 +487,30 @@ public class OperatorTest {
         assertEquals(expectedOutput, output);
     }
 
+    @Test
+    public void whenCombiningNumberRanges_integralBoundsStayExact(){
+        NumberRange big = NumberRange.create(Graql.Token.Comparator.GTE, 9007199254740993L);
+        assertTrue(big.isIntegral());
+        assertTrue(big.contains(9007199254740993L));
+        assertFalse(big.contains(9007199254740992L));
+
+        NumberRange gt5 = NumberRange.create(Graql.Token.Comparator.GT, 5);
+        assertTrue(gt5.intersect(NumberRange.create(Graql.Token.Comparator.LT, 6)).isEmpty());
+        assertFalse(gt5.intersects(NumberRange.create(Graql.Token.Comparator.LT, 6)));
+        assertTrue(gt5.intersects(NumberRange.create(Graql.Token.Comparator.LT, 6.0)));
+        assertFalse(gt5.intersect(NumberRange.create(Graql.Token.Comparator.LT, 6.0)).isIntegral());
+        assertTrue(gt5 == gt5.intersect(NumberRange.create(Graql.Token.Comparator.GTE, 5)));
+
+        assertTrue(NumberRange.create(Graql.Token.Comparator.GTE, 5).contains(gt5));
+        assertFalse(gt5.contains(NumberRange.create(Graql.Token.Comparator.GTE, 5)));
+
+        NumberRange hull = NumberRange.create(Graql.Token.Comparator.LT, 0).hull(NumberRange.create(Graql.Token.Comparator.EQV, 10));
+        assertTrue(hull.contains(-100L));
+        assertTrue(hull.contains(10L));
+        assertFalse(hull.contains(10.5));
+        assertTrue(NumberRange.unbounded().contains(hull));
+    }
+
     @Test
     public void whenApplyingDifferentOperatorsConsecutively_weConvergeToEmptyPattern(){
         Pattern input = and(
@@ -456,6 +593,525 @@ public class OperatorTest {
         assertNotEquals(output, output2);
     }
 
+    @Test
+    public void whenApplyingFuzzyingOperatorsWithTheSameSeed_weGetTheSameOutput(){
+        Pattern input = and(
+                var("r")
+                        .rel("subRole", var("x"))
+                        .rel("subRole", var("y")),
+                var("x").id("V123"),
+                var("y").id("V456")
+        );
+        for (Operator op : Lists.newArrayList(Operators.fuzzVariables(), Operators.fuzzIds())) {
+            List<Pattern> output = op.apply(input, ctx, new SplittableRandom(42)).collect(Collectors.toList());
+            assertEquals(output, op.apply(input, ctx, new SplittableRandom(42)).collect(Collectors.toList()));
+            assertEquals(
+                    op.apply(input, ctx, 1, new SplittableRandom(42)).collect(Collectors.toList()),
+                    op.apply(input, ctx, 1, new SplittableRandom(42)).collect(Collectors.toList()));
+        }
+
+        List<Operator> ops = Lists.newArrayList(Operators.fuzzIds(), Operators.fuzzVariables(), Operators.fuzzIds());
+        OperatorPipeline.Builder builder = OperatorPipeline.builder().pool(pool).budget(2);
+        ops.forEach(builder::stage);
+        OperatorPipeline pipeline = builder.build();
+        Set<Pattern> output = pipeline.apply(Lists.newArrayList(input), ctx);
+
+        OperatorPipeline.Builder replayBuilder = OperatorPipeline.builder()
+                .pool(pool)
+                .budget(2)
+                .randomSeed(pipeline.randomSeed());
+        ops.forEach(replayBuilder::stage);
+        assertEquals(output, replayBuilder.build().apply(Lists.newArrayList(input), ctx));
+    }
+
+    @Test
+    public void whenRunningOperatorPipeline_weGetTheSameOutputAsSequentialApplication(){
+        Pattern input = and(
+                var("r")
+                        .rel("subRole", var("x"))
+                        .rel("subRole", var("y")),
+                var("x").isa("subEntity"),
+                var("x").id("V123"),
+                var("y").isa("subEntity"),
+                var("y").id("V456")
+        );
+        List<Operator> ops = Lists.newArrayList(Operators.removeSubstitution(), Operators.typeGeneralise(), Operators.roleGeneralise());
+
+        Set<Pattern> expectedOutput = Sets.newHashSet(input);
+        for (Operator op : ops) {
+            expectedOutput = expectedOutput.stream().flatMap(p -> op.apply(p, ctx)).collect(Collectors.toSet());
+        }
+
+        OperatorPipeline.Builder builder = OperatorPipeline.builder().pool(pool);
+        ops.forEach(builder::stage);
+        OperatorPipeline pipeline = builder.build();
+        Set<Pattern> output = pipeline.apply(Lists.newArrayList(input), ctx);
+
+        assertEquals(expectedOutput, output);
+        OperatorPipeline.Stage first = pipeline.stages().get(0);
+        assertEquals(1, first.inputs());
+        assertEquals(pipeline.stages().get(1).inputs(), first.outputs() - first.duplicates());
+        assertEquals(output.size(), pipeline.stages().get(2).outputs() - pipeline.stages().get(2).duplicates());
+    }
+
+    @Test
+    public void whenCanonicalisingFuzzedVariables_weGetTheSameCanonicalForm(){
+        Pattern input = and(
+                var("r")
+                        .rel("subRole", var("x"))
+                        .rel("subRole", var("y")),
+                var("x").isa("subEntity"),
+                var("x").id("V123"),
+                var("y").isa("subEntity"),
+                var("y").has("someAttribute", var("v"))
+        );
+        Canonicaliser canonicaliser = new Canonicaliser();
+        CanonicalForm canonicalInput = canonicaliser.canonicalise(input);
+
+        Set<Pattern> fuzzed = Operators.fuzzVariables().apply(input, ctx).collect(Collectors.toSet());
+        assertFalse(fuzzed.isEmpty());
+        fuzzed.forEach(output -> {
+            assertNotEquals(input, output);
+            assertEquals(canonicalInput, canonicaliser.canonicalise(output));
+            assertEquals(canonicalInput.hash64(), canonicaliser.canonicalise(output).hash64());
+        });
+
+        Pattern different = and(
+                var("r").rel("subRole", var("x")).rel("subRole", var("y")),
+                var("x").isa("subEntity"),
+                var("y").id("V123"),
+                var("y").isa("subEntity"),
+                var("x").has("someAttribute", var("v"))
+        );
+        assertNotEquals(canonicalInput, canonicaliser.canonicalise(different));
+    }
+
+    @Test
+    public void whenEnumeratingCartesianProduct_indexingAgreesWithGuavaOrder(){
+        List<Set<Integer>> sets = Lists.newArrayList(
+                Sets.newLinkedHashSet(Lists.newArrayList(1, 2, 3)),
+                Sets.newLinkedHashSet(Lists.newArrayList(4, 5)),
+                Sets.newLinkedHashSet(Lists.newArrayList(6, 7, 8, 9))
+        );
+        CartesianProduct<Integer> product = CartesianProduct.of(sets);
+        List<List<Integer>> expected = Lists.newArrayList(Sets.cartesianProduct(sets));
+
+        assertEquals(expected.size(), product.size());
+        assertEquals(expected, product.stream().collect(Collectors.toList()));
+        assertEquals(expected, product.parallelStream().collect(Collectors.toList()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), product.get(i));
+            assertEquals(i, product.indexOf(expected.get(i)));
+        }
+        assertEquals(-1, product.indexOf(Lists.newArrayList(1, 4, 10)));
+
+        List<List<Integer>> sample = product.sample(5, new SplittableRandom(0));
+        assertEquals(5, sample.size());
+        assertEquals(5, Sets.newHashSet(sample).size());
+        assertTrue(expected.containsAll(sample));
+        assertEquals(expected, product.sample(100, new SplittableRandom(0)));
+
+        assertEquals(0, CartesianProduct.of(Lists.newArrayList(sets.get(0), Sets.<Integer>newHashSet())).size());
+        assertEquals(Lists.<List<Integer>>newArrayList(Lists.newArrayList()),
+                CartesianProduct.<Integer>of(Lists.newArrayList()).stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void whenCartesianProductExceedsLongRange_weCanStillSampleIt(){
+        List<Set<Integer>> sets = Stream.generate(() -> Sets.newHashSet(0, 1, 2, 3))
+                .limit(40)
+                .collect(Collectors.toList());
+        CartesianProduct<Integer> product = CartesianProduct.of(sets);
+
+        assertFalse(product.isIndexable());
+        List<List<Integer>> sample = product.sample(10, new SplittableRandom(42));
+        assertEquals(10, Sets.newHashSet(sample).size());
+        sample.forEach(combination -> assertEquals(40, combination.size()));
+        assertEquals(5, product.stream().limit(5).count());
+    }
+
+    @Test
+    public void whenIndexingPattern_propertiesAreBucketedPerStatement(){
+        Pattern input = and(
+                var("r").rel("subRole", var("x")).rel("subRole", var("y")),
+                var("x").isa("subEntity").id("V123"),
+                var("y").has("someAttribute", var("v"))
+        );
+        PatternIndex index = PatternIndex.of(input);
+
+        assertEquals(input.statements(), index.statements());
+        assertEquals(Sets.newHashSet(var("x").var(), var("y").var()), index.rolePlayerVariables());
+        assertTrue(index.hasIds());
+        assertTrue(index.hasRelations());
+        index.statements().forEach(s -> {
+            assertEquals(s.getProperties(IdProperty.class).collect(Collectors.toSet()), index.ids(s));
+            assertEquals(s.getProperty(IsaProperty.class), index.isa(s));
+            assertEquals(s.getProperty(RelationProperty.class), index.relation(s));
+            assertEquals(s.getProperties(HasAttributeProperty.class).collect(Collectors.toSet()), index.attributes(s));
+            assertTrue(index.statements(s.var()).contains(s));
+        });
+    }
+
+    @Test
+    public void whenApplyingCachedOperatorRepeatedly_outputsAreComputedOnce(){
+        Pattern input = and(
+                var("r").rel("subRole", var("x")).rel("subRole", var("y")),
+                var("x").isa("subEntity"),
+                var("y").isa("subEntity")
+        );
+        Operator operator = Operators.roleGeneralise();
+        CachingOperator cached = Operators.cached(operator, 100);
+
+        Set<Pattern> expected = operator.apply(input, ctx).collect(Collectors.toSet());
+        assertEquals(expected, cached.apply(input, ctx).collect(Collectors.toSet()));
+        assertEquals(expected, cached.apply(input, ctx).collect(Collectors.toSet()));
+        assertEquals(1, cached.hits());
+        assertEquals(1, cached.misses());
+        assertEquals(0.5, cached.hitRate(), 1e-9);
+        assertEquals(operator.apply(input, ctx).count(), cached.estimate(input, ctx));
+
+        cached.apply(input, new MockTypeContext()).count();
+        assertEquals(2, cached.misses());
+        assertEquals(2, cached.size());
+    }
+
+    @Test
+    public void whenApplyingCachedOperatorToAlphaEquivalentPattern_outputsAreRenamedFromTheCache(){
+        Pattern input = and(
+                var("r").rel("subRole", var("x")).rel("subRole", var("y")),
+                var("x").isa("subEntity"),
+                var("y").isa("baseEntity")
+        );
+        Pattern renamed = and(
+                var("rel").rel("subRole", var("a")).rel("subRole", var("b")),
+                var("a").isa("subEntity"),
+                var("b").isa("baseEntity")
+        );
+        Operator operator = Operators.typeGeneralise();
+        CachingOperator cached = Operators.cached(operator, 100);
+
+        cached.apply(input, ctx).count();
+        Set<Pattern> output = cached.apply(renamed, ctx).collect(Collectors.toSet());
+        assertEquals(1, cached.hits());
+        assertEquals(1, cached.size());
+        assertEquals(operator.apply(renamed, ctx).collect(Collectors.toSet()), output);
+    }
+
+    @Test
+    public void whenLoadingTypeContextFromSession_hierarchyIsAnsweredLocallyAndRefreshed(){
+        GraknClient.Session session = mock(GraknClient.Session.class);
+        GraknClient.Transaction.Builder builder = mock(GraknClient.Transaction.Builder.class);
+        GraknClient.Transaction tx = mock(GraknClient.Transaction.class);
+        when(session.transaction()).thenReturn(builder);
+        when(builder.read()).thenReturn(tx);
+        List<ConceptMap> schema = Lists.newArrayList(
+                subEdge("entity", "thing"),
+                subEdge("baseEntity", "entity"),
+                subEdge("subEntity", "baseEntity"),
+                subEdge("baseRole", "role"),
+                subEdge("subRole", "baseRole")
+        );
+        List<ConceptMap> extendedSchema = Lists.newArrayList(schema);
+        extendedSchema.add(subEdge("otherEntity", "baseEntity"));
+        when(tx.execute(any(GraqlGet.class))).thenReturn(schema, schema, extendedSchema);
+
+        GraknTypeContext typeContext = new GraknTypeContext(session);
+        assertEquals("baseEntity", typeContext.sup("subEntity"));
+        assertEquals(Lists.newArrayList("baseEntity", "entity", "thing"), typeContext.sups("subEntity").collect(Collectors.toList()));
+        assertEquals(Sets.newHashSet("baseEntity", "subEntity"), typeContext.subs("entity").collect(Collectors.toSet()));
+        assertTrue(typeContext.isMetaType("role"));
+        assertFalse(typeContext.isMetaType("baseRole"));
+
+        assertFalse(typeContext.refresh());
+        assertTrue(typeContext.refresh());
+        assertEquals("baseEntity", typeContext.sup("otherEntity"));
+        assertEquals(Sets.newHashSet("subEntity", "otherEntity"), typeContext.subs("baseEntity").collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void whenCheckingGeneralisationAgainstKeyspace_answersAreContainedAndCached(){
+        Pattern specific = and(var("x").isa("subEntity"), var("x").id("V123"));
+        Pattern general = and(var("x").isa("subEntity"));
+        Canonicaliser canonicaliser = new Canonicaliser();
+        String specificX = canonicaliser.canonicalise(specific).variableMapping().get("x");
+        String generalX = canonicaliser.canonicalise(general).variableMapping().get("x");
+
+        List<ConceptMap> specificAnswers = Lists.newArrayList(answer(specificX, "V123"));
+        List<ConceptMap> generalAnswers = Lists.newArrayList(answer(generalX, "V123"), answer(generalX, "V456"));
+        ContainmentChecker checker = new ContainmentChecker(session(specificAnswers, generalAnswers), canonicaliser);
+        assertTrue(checker.check(specific, general).contained());
+        assertTrue(checker.check(specific, general).contained());
+        assertEquals(2, checker.queries());
+
+        List<ConceptMap> unsoundAnswers = Lists.newArrayList(answer(generalX, "V456"));
+        ContainmentChecker.Result result = new ContainmentChecker(session(specificAnswers, unsoundAnswers), canonicaliser)
+                .check(specific, general);
+        assertFalse(result.contained());
+        assertEquals(Lists.newArrayList("x"), result.variables());
+        assertEquals(Lists.newArrayList(Lists.newArrayList("V123")), result.missing());
+    }
+
+    @Test
+    public void whenContainmentCacheIsFull_answersAreEvictedAndQueriedAgain(){
+        Pattern pattern = and(var("x").isa("subEntity"));
+        Canonicaliser canonicaliser = new Canonicaliser();
+        String x = canonicaliser.canonicalise(pattern).variableMapping().get("x");
+        List<ConceptMap> answers = Lists.newArrayList(answer(x, "V123"), answer(x, "V456"));
+
+        GraknClient.Session session = mock(GraknClient.Session.class);
+        GraknClient.Transaction.Builder builder = mock(GraknClient.Transaction.Builder.class);
+        GraknClient.Transaction tx = mock(GraknClient.Transaction.class);
+        when(session.transaction()).thenReturn(builder);
+        when(builder.read()).thenReturn(tx);
+        when(tx.stream(any(GraqlGet.class))).thenAnswer(invocation -> answers.stream());
+
+        ContainmentChecker cached = new ContainmentChecker(session, canonicaliser);
+        assertTrue(cached.check(pattern, pattern).contained());
+        assertTrue(cached.check(pattern, pattern).contained());
+        assertEquals(1, cached.queries());
+
+        ContainmentChecker uncached = new ContainmentChecker(session, canonicaliser, 0);
+        assertTrue(uncached.check(pattern, pattern).contained());
+        assertTrue(uncached.check(pattern, pattern).contained());
+        assertEquals(4, uncached.queries());
+    }
+
+    @Test
+    public void whenComparingCompressedAnswerSets_setOperationsAgreeWithJavaSets(){
+        SplittableRandom random = new SplittableRandom(0);
+        Set<Integer> left = new HashSet<>();
+        Set<Integer> right = new HashSet<>();
+        AnswerSet.Builder leftBuilder = AnswerSet.builder(1);
+        AnswerSet.Builder rightBuilder = AnswerSet.builder(1);
+        // dense block to exercise bitmap containers, sparse tail for array containers
+        for (int i = 0; i < 20000; i++) {
+            int value = i % 2 == 0 ? random.nextInt(10000) : random.nextInt(1 << 24);
+            left.add(value);
+            leftBuilder.add(value);
+            if (random.nextInt(4) != 0) {
+                right.add(value);
+                rightBuilder.add(value);
+            }
+        }
+        AnswerSet leftAnswers = leftBuilder.build();
+        AnswerSet rightAnswers = rightBuilder.build();
+
+        assertEquals(left.size(), leftAnswers.size());
+        assertTrue(rightAnswers.isSubsetOf(leftAnswers));
+        assertFalse(leftAnswers.isSubsetOf(rightAnswers));
+        assertEquals(right.size(), leftAnswers.intersect(rightAnswers).size());
+        Set<Integer> difference = Sets.difference(left, right);
+        AnswerSet differenceAnswers = leftAnswers.difference(rightAnswers);
+        assertEquals(difference.size(), differenceAnswers.size());
+        difference.forEach(value -> assertTrue(differenceAnswers.contains(value)));
+
+        AnswerSet pairs = AnswerSet.builder(2).add(1, 2).add(1, 3).add(2, 3).add(1, 2).build();
+        AnswerSet otherPairs = AnswerSet.builder(2).add(1, 3).add(2, 3).add(3, 3).build();
+        assertEquals(3, pairs.size());
+        assertEquals(2, pairs.intersect(otherPairs).size());
+        assertTrue(pairs.difference(otherPairs).contains(1, 2));
+        assertEquals(2, pairs.project(1).size());
+        assertTrue(pairs.project(0).isSubsetOf(otherPairs.project(0)));
+    }
+
+    @Test
+    public void whenBuildingAnswerTuples_duplicatesAreDroppedForEveryArity(){
+        SplittableRandom random = new SplittableRandom(0);
+        for (int arity = 2; arity <= 3; arity++) {
+            Set<List<Integer>> tuples = new HashSet<>();
+            AnswerSet.Builder builder = AnswerSet.builder(arity);
+            for (int i = 0; i < 5000; i++) {
+                // small values collide often, large ones cover the sign bit
+                int[] tuple = IntStream.range(0, arity)
+                        .map(k -> random.nextBoolean() ? random.nextInt(8) - 4 : random.nextInt())
+                        .toArray();
+                tuples.add(IntStream.of(tuple).boxed().collect(Collectors.toList()));
+                builder.add(tuple);
+            }
+            AnswerSet answers = builder.build();
+
+            assertEquals(tuples.size(), answers.size());
+            tuples.forEach(tuple -> assertTrue(answers.contains(tuple.stream().mapToInt(Integer::intValue).toArray())));
+        }
+    }
+
+    private GraknClient.Session session(List<ConceptMap> first, List<ConceptMap> second){
+        GraknClient.Session session = mock(GraknClient.Session.class);
+        GraknClient.Transaction.Builder builder = mock(GraknClient.Transaction.Builder.class);
+        GraknClient.Transaction tx = mock(GraknClient.Transaction.class);
+        when(session.transaction()).thenReturn(builder);
+        when(builder.read()).thenReturn(tx);
+        when(tx.stream(any(GraqlGet.class))).thenReturn(first.stream(), second.stream());
+        return session;
+    }
+
+    private ConceptMap answer(String var, String id){
+        ConceptMap answer = mock(ConceptMap.class);
+        Concept concept = mock(Concept.class);
+        ConceptId conceptId = ConceptId.of(id);
+        when(concept.id()).thenReturn(conceptId);
+        when(answer.map()).thenReturn(ImmutableMap.of(var(var).var(), concept));
+        return answer;
+    }
+
+    private ConceptMap subEdge(String child, String parent){
+        ConceptMap answer = mock(ConceptMap.class);
+        Concept childConcept = mock(Concept.class);
+        Concept parentConcept = mock(Concept.class);
+        SchemaConcept childType = mock(SchemaConcept.class);
+        SchemaConcept parentType = mock(SchemaConcept.class);
+        when(childType.label()).thenReturn(Label.of(child));
+        when(parentType.label()).thenReturn(Label.of(parent));
+        when(childConcept.asSchemaConcept()).thenReturn(childType);
+        when(parentConcept.asSchemaConcept()).thenReturn(parentType);
+        when(answer.get("x")).thenReturn(childConcept);
+        when(answer.get("y")).thenReturn(parentConcept);
+        return answer;
+    }
+
+    @Test
+    public void whenDrawingIdsFromPoolConcurrently_idsComeFromSampledBatches(){
+        List<String> ids = IntStream.range(0, 1000).mapToObj(i -> "V" + i).collect(Collectors.toList());
+        InstanceIdPool idPool = new InstanceIdPool((type, sink) -> ids.forEach(sink), 10, Runnable::run);
+
+        Set<String> drawn = IntStream.range(0, 10000).parallel()
+                .mapToObj(i -> idPool.next("thing"))
+                .collect(Collectors.toSet());
+        assertTrue(ids.containsAll(drawn));
+        assertTrue(drawn.size() > 10);
+        assertTrue(idPool.refills() > 1);
+
+        InstanceIdPool emptyPool = new InstanceIdPool((type, sink) -> {}, 10, Runnable::run);
+        assertEquals(null, emptyPool.next("thing"));
+    }
+
+    @Test
+    public void whenRefillingIdPoolFails_theNextDrawRetries(){
+        AtomicInteger loads = new AtomicInteger();
+        InstanceIdPool idPool = new InstanceIdPool((type, sink) -> {
+            // the initial load succeeds, the first refill fails and the retry succeeds
+            if (loads.getAndIncrement() == 1) throw new IllegalStateException("source unavailable");
+            IntStream.range(0, 10).mapToObj(i -> "V" + i).forEach(sink);
+        }, 10, Runnable::run);
+
+        for (int i = 0; i < 6; i++) assertNotNull(idPool.next("thing"));
+        assertEquals(2, idPool.refills());
+        assertNotNull(idPool.next("thing"));
+        assertEquals(3, idPool.refills());
+        for (int i = 0; i < 5; i++) assertNotNull(idPool.next("thing"));
+        assertEquals(3, idPool.refills());
+    }
+
+    @Test
+    public void whenTypeHasManyInstances_idBatchesAreReplacedLessOften(){
+        List<String> ids = IntStream.range(0, 10000).mapToObj(i -> "V" + i).collect(Collectors.toList());
+        InstanceIdPool idPool = new InstanceIdPool((type, sink) -> ids.forEach(sink), 10, Runnable::run);
+
+        // a batch sampled from 10000 ids is replaced after 100 draws rather than after half of its 10 ids
+        for (int i = 0; i < 100; i++) assertNotNull(idPool.next("thing"));
+        assertEquals(1, idPool.refills());
+        assertNotNull(idPool.next("thing"));
+        assertEquals(2, idPool.refills());
+    }
+
+    @Test
+    public void whenInitialIdLoadFails_theNextRequestLoadsAgain(){
+        AtomicInteger loads = new AtomicInteger();
+        InstanceIdPool idPool = new InstanceIdPool((type, sink) -> {
+            if (loads.getAndIncrement() == 0) throw new IllegalStateException("source unavailable");
+            sink.accept("V" + type);
+        }, 10, Runnable::run);
+
+        try {
+            idPool.next("thing");
+            fail();
+        } catch (IllegalStateException expected) {}
+        assertEquals("Vthing", idPool.next("thing"));
+        assertEquals("Vthing", idPool.next("thing"));
+    }
+
+    @Test
+    public void whenExploringGeneralisationLattice_weRecordTheDagUpToLimits(){
+        Pattern input = and(
+                var("r").rel("subRole", var("x")).rel("subRole", var("y")),
+                var("x").isa("subEntity"),
+                var("x").id("V123"),
+                var("y").isa("subEntity")
+        );
+        LatticeExplorer explorer = LatticeExplorer.builder()
+                .operator(Operators.removeSubstitution())
+                .operator(Operators.typeGeneralise())
+                .maxDepth(2)
+                .build();
+        LatticeExplorer.Lattice lattice = explorer.explore(input, ctx);
+
+        assertEquals(0, lattice.root().depth());
+        assertFalse(lattice.truncated());
+        assertFalse(lattice.level(1).isEmpty());
+        assertFalse(lattice.level(2).isEmpty());
+        assertTrue(lattice.level(3).isEmpty());
+        lattice.edges().forEach(e -> {
+            assertNotEquals(e.parent().form(), e.child().form());
+            assertTrue(e.child().depth() <= e.parent().depth() + 1);
+        });
+        assertEquals(lattice.edges().size(), new HashSet<>(lattice.edges()).size());
+        assertEquals(Sets.newHashSet(0, 1), lattice.edges().stream().map(LatticeExplorer.Edge::operator).collect(Collectors.toSet()));
+        lattice.nodes().stream()
+                .filter(n -> n != lattice.root())
+                .forEach(n -> assertTrue(lattice.edges().stream().anyMatch(e -> e.child() == n && e.parent().depth() == n.depth() - 1)));
+
+        LatticeExplorer.Lattice bounded = LatticeExplorer.builder()
+                .operator(Operators.removeSubstitution())
+                .operator(Operators.typeGeneralise())
+                .maxNodes(3)
+                .build()
+                .explore(input, ctx);
+        assertTrue(bounded.truncated());
+        assertEquals(3, bounded.nodes().size());
+    }
+
+    @Test
+    public void whenShrinkingFailingPattern_weGetAMinimalFailingPattern(){
+        Pattern input = and(
+                var("r")
+                        .rel("subRole", var("x"))
+                        .rel("subRole", var("y"))
+                        .rel("baseRole", var("z"))
+                        .isa("subRelation"),
+                var("x").isa("subEntity"),
+                var("x").id("V123"),
+                var("y").isa("subEntity"),
+                var("y").id("V456"),
+                var("z").isa("baseEntity"),
+                var("z").has("someAttribute", var("v")),
+                var("v").val(10)
+        );
+        // fails whenever the pattern ids V456 and has a relation with a baseRole player
+        Predicate<Pattern> failure = p -> p.statements().stream()
+                .flatMap(s -> s.getProperties(IdProperty.class))
+                .anyMatch(id -> id.id().equals("V456"))
+                && p.statements().stream()
+                .flatMap(s -> s.getProperties(RelationProperty.class))
+                .flatMap(rel -> rel.relationPlayers().stream())
+                .anyMatch(rp -> rp.getRole().map(role -> role.toString().contains("baseRole")).orElse(false));
+
+        PatternShrinker shrinker = PatternShrinker.builder()
+                .failure(failure)
+                .pool(pool)
+                .build();
+        Pattern shrunk = shrinker.shrink(input);
+
+        assertTrue(failure.test(shrunk));
+        assertEquals(2, shrunk.statements().size());
+        assertEquals(2, shrunk.statements().stream().mapToLong(s -> s.properties().size()).sum());
+        assertEquals(1, getProperty(shrunk, RelationProperty.class).relationPlayers().size());
+
+        long tests = shrinker.tests();
+        assertEquals(shrunk, shrinker.shrink(input));
+        assertEquals(tests, shrinker.tests());
+        assertTrue(shrinker.cacheHits() > 0);
+    }
+
     private <T extends VarProperty> T getProperty(Pattern src, Class<T> type){
         return src.statements().stream()
                 .map(s -> s.getProperty(type))